@@ -1,402 +1,5250 @@
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.random.RandomGenerator;
 
 public class Main {
-    // Initalizing variables
-    public static int POPULATIONSIZE = 0;
-    public static int TOURNAMENTSIZE = 0;
-    public static double MUTATIONRATE = 0;
-    // Threshold of number of mutable positions for easy level sudoku
-    public static int EASYTHRESHOLD = 60; 
-    public static int HARDTHRESHOLD = 70;
-    // List to store the population of chromosomes  
-    List<Chromosome> population = new ArrayList<>();
-    Random random = new Random();
+    // Threshold of number of mutable positions for ultra-hard sudoku
+    public static final int HARDTHRESHOLD = 70;
+    // Number of cells in a packed genome
+    public static final int CELLS = 81;
+    // Settings this solver was created with
+    final SolverConfig config;
+    // Selection and mutation settings of this solver
+    final int tournamentSize;
+    final double mutationRate;
+    final Mutation mutation;
+    // Share of children hill-climbed after mutation (0 turns the memetic step off) and swaps tried per climb
+    final double memeticRate;
+    final int memeticBudget;
+    // Generations evolved by the last call to evolve()
+    int generations;
+    // Chromosomes scored from scratch (fitness cache hits excluded) since the solver was created
+    final LongAdder evaluations = new LongAdder();
+    // Prefix of the --stats lines of this solver when several run at once (island, worker or portfolio member)
+    String label;
+    // Raised by a portfolio race once another member won; checked every generation
+    AtomicBoolean cancelled;
+    // Double-buffered store holding the population of chromosomes
+    PopulationStore population;
+    // Compiled puzzle shared by all chromosomes
+    PuzzleModel model;
+    // Memo of unit scores by genome hash, null when disabled
+    FitnessCache fitnessCache;
+    // Pool breeding the next generation in parallel, null for the single-threaded loop
+    ForkJoinPool pool;
+    // Pipelined engine breeding the next generation, null unless --pipeline
+    Pipeline pipeline;
+    // Generator of the thread running this solver; parallel tasks, stages and workers split their own off it
+    final RandomSource random;
+    // Islands this solver belongs to and its index there, null when it evolves alone
+    Archipelago islands;
+    int islandId;
+
+    // Create a solver from settings whose puzzle-dependent values are already chosen (see
+    // SolverConfig.forPuzzle); SudokuSolver does this for every grid it solves
+    Main(SolverConfig config) {
+        this(config, 0);
+    }
+
+    // As above, drawing from random stream `stream` of the configuration, so that islands and portfolio
+    // members of a seeded run differ from each other
+    Main(SolverConfig config, int stream) {
+        this.config = config;
+        random = config.newRandomSource(stream);
+        tournamentSize = config.getTournamentSize();
+        mutationRate = config.getMutationRate();
+        mutation = config.getMutation();
+        memeticRate = config.getMemeticRate();
+        memeticBudget = config.getMemeticBudget();
+        if (config.getFitnessCacheEntries() > 0) {
+            fitnessCache = new FitnessCache(config.getFitnessCacheEntries());
+        }
+        if (config.getThreads() > 1) {
+            pool = new ForkJoinPool(config.getThreads());
+        }
+        if (config.isPipeline()) {
+            pipeline = new Pipeline(this);
+        }
+    }
 
     public static void main(String[] args) {
-        // Base Sudoku matrix (input matrix)
-        int[][] baseSudoku = new int[9][9];
-        // List to track positions in Sudoku that are mutable
-        List<int[]> mutablePositions = new ArrayList<>();
+        // Command line options; without any the solver reads a puzzle from standard input as before
+        SolverConfig.Builder builder = SolverConfig.builder();
+        int islandBenchmarkRuns = 0;
+        int randomBenchmarkRuns = 0;
+        boolean exactBenchmark = false;
+        // Multi-process islands: this process is worker `worker` (--worker=id, -1 when not a worker) of
+        // `workers` (--workers=count) sharing the memory-mapped file `sharedFile` (--shared-file=path)
+        int worker = -1;
+        int workers = 0;
+        String sharedFile = null;
+        // File the portfolio winners are appended to (--portfolio-log=path)
+        String portfolioLog = null;
+        for (String arg : args) {
+            // An option may carry a value after '=', e.g. --fitness-cache=4000000
+            int equals = arg.indexOf('=');
+            String name = equals < 0 ? arg : arg.substring(0, equals);
+            String value = equals < 0 ? null : arg.substring(equals + 1);
+            int processors = Runtime.getRuntime().availableProcessors();
+            try {
+                switch (name) {
+                    case "--check-fitness": // Self-check of the fitness kernel
+                        int mismatches = checkFitnessKernel(100000, 42);
+                        System.out.println(mismatches == 0 ? "Fitness kernel OK" : "Fitness kernel mismatches: " + mismatches);
+                        System.exit(mismatches == 0 ? 0 : 1);
+                        return;
+                    case "--bench-threads": // Generations per second from 1 to the given number of threads
+                        benchmarkThreads(intValue(value, processors));
+                        return;
+                    case "--bench-init": // Time to the first generation from 1 to the given number of threads
+                        benchmarkInitialization(intValue(value, processors));
+                        return;
+                    case "--bench-islands": // Time to solve the input with one population and with islands
+                        islandBenchmarkRuns = intValue(value, 3);
+                        break;
+                    case "--bench-exact": // Puzzles per second of the exact engine and the GA on the puzzles of the input
+                        exactBenchmark = true;
+                        break;
+                    case "--bench-random": // Throughput of every random source and time to solve the input with it
+                        randomBenchmarkRuns = intValue(value, 5);
+                        break;
+                    case "--off-heap": // Keep the population outside the Java heap
+                        builder.offHeap(true);
+                        break;
+                    case "--shared-boxes": // Store chromosomes as references to shared, interned 3x3 boxes
+                        builder.sharedBoxes(true);
+                        break;
+                    case "--stats": // Print the fitness statistics of every generation to standard error
+                        builder.stats(true);
+                        break;
+                    case "--pipeline": // Breed with one thread per GA stage
+                        builder.pipeline(true);
+                        break;
+                    case "--steady-state": // Replace individuals in place as children arrive, without generations
+                        builder.steadyState(true);
+                        break;
+                    case "--random": // Random source: xoshiro, splittable or legacy (java.util.Random)
+                        builder.randomSource(RandomSource.Kind.valueOf(value == null ? "" : value.toUpperCase()));
+                        break;
+                    case "--engine": // genetic (the default), exact backtracking, annealing or tabu
+                        builder.engine(SolverConfig.Engine.valueOf(value == null ? "" : value.toUpperCase()));
+                        break;
+                    case "--cooling": // Annealing schedule: geometric (the default) or linear
+                        builder.cooling(Annealer.Cooling.valueOf(value == null ? "" : value.toUpperCase()));
+                        break;
+                    case "--cooling-rate":
+                        builder.coolingRate(Double.parseDouble(value));
+                        break;
+                    case "--temperature": // Initial annealing temperature, estimated from the puzzle by default
+                        builder.temperature(Double.parseDouble(value));
+                        break;
+                    case "--reheat": // Temperature steps without a new best before reheating, 0 for never
+                        builder.reheat(Integer.parseInt(value));
+                        break;
+                    case "--tabu-tenure": // Iterations a swapped pair stays tabu
+                        builder.tabuTenure(Integer.parseInt(value));
+                        break;
+                    case "--tabu-restart": // Tabu iterations without a new best before restarting, 0 for never
+                        builder.tabuRestart(Integer.parseInt(value));
+                        break;
+                    case "--chains": // Independent annealing or tabu chains on their own threads
+                        builder.chains(intValue(value, processors));
+                        break;
+                    case "--population": // Chromosomes per population, chosen by difficulty by default
+                        builder.populationSize(Integer.parseInt(value));
+                        break;
+                    case "--mutation": // box_swap (the default) or cell_swap
+                        builder.mutation(Mutation.valueOf(value == null ? "" : value.toUpperCase()));
+                        break;
+                    case "--memetic": // Hill-climb this share of the children (all without a value); see --memetic-budget
+                        builder.memeticRate(value == null ? 1 : Double.parseDouble(value));
+                        break;
+                    case "--memetic-budget": // Swaps tried per hill climb
+                        builder.memeticBudget(Integer.parseInt(value));
+                        break;
+                    case "--no-propagation": // Evolve every empty cell, without filling the forced ones first
+                        builder.propagation(false);
+                        break;
+                    case "--max-generations": // Give up after this many generations
+                        builder.maxGenerations(Integer.parseInt(value));
+                        break;
+                    case "--seed": // Seed of the random streams, for repeatable runs
+                        builder.seed(Long.parseLong(value));
+                        break;
+                    case "--threads": // Worker threads breeding the next generation
+                        builder.threads(intValue(value, processors));
+                        break;
+                    case "--fitness-cache": // Entries of the Zobrist-keyed fitness memo
+                        builder.fitnessCacheEntries(intValue(value, 1 << 20));
+                        break;
+                    case "--islands": // Islands sharing migrants; see also --topology, --migration-interval, --migrants
+                        builder.islands(intValue(value, processors));
+                        break;
+                    case "--topology":
+                        builder.topology(Archipelago.Topology.valueOf(value == null ? "" : value.toUpperCase()));
+                        break;
+                    case "--migration-interval":
+                        builder.migrationInterval(intValue(value, SolverConfig.MIGRATION_INTERVAL));
+                        break;
+                    case "--migrants":
+                        builder.migrants(intValue(value, SolverConfig.MIGRANTS));
+                        break;
+                    case "--worker":
+                        worker = Integer.parseInt(value);
+                        break;
+                    case "--workers":
+                        workers = Integer.parseInt(value);
+                        break;
+                    case "--shared-file":
+                        sharedFile = value;
+                        break;
+                    case "--portfolio": // Race members population:tournament:rate:box|cell, the default ones if empty
+                        builder.portfolio(Portfolio.parse(value == null ? "" : value));
+                        break;
+                    case "--portfolio-log":
+                        portfolioLog = value;
+                        break;
+                    default:
+                        System.err.println("Unknown option: " + arg);
+                        return;
+                }
+            } catch (IllegalArgumentException e) { // Also covers NumberFormatException
+                System.err.println("Invalid value: " + arg);
+                return;
+            }
+        }
+        SolverConfig config;
+        try {
+            config = builder.build();
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+        if (worker >= 0 && (sharedFile == null || workers < 2 || worker >= workers)) {
+            System.err.println("--worker=id needs --workers=count (at least 2, above the id) and --shared-file=path");
+            return;
+        }
+        if (worker >= 0 && (config.getPortfolio() != null || config.getIslands() > 1 || config.isSteadyState()
+                || config.getEngine() != SolverConfig.Engine.GENETIC)) {
+            System.err.println("--worker runs one island of its own and cannot be combined with --portfolio, --islands, --steady-state or another --engine");
+            return;
+        }
+
+        // Base Sudoku genome (input matrix), stored row by row as 81 cells
+        byte[] baseSudoku;
         BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
-        
         try {
-            // Reading the Sudoku matrix from the console input
-            for (int i = 0; i < 9; i++) {
-                // Split the input by space
-                String[] tokens = reader.readLine().split(" ");
-                for (int j = 0; j < 9; j++) {
-                    if (tokens[j].equals("-")) {
-                        // Empty cells are marked as 0
-                        baseSudoku[i][j] = 0;
-                        // Add mutable positions (i, j) to the list
-                        mutablePositions.add(new int[]{i, j});
-                    } else {
-                        // Set fixed value from the input
-                        baseSudoku[i][j] = Integer.parseInt(tokens[j]);
+            if (exactBenchmark) {
+                benchmarkExact(readPuzzles(reader), config);
+                return;
+            }
+            baseSudoku = readPuzzle(reader);
+        } catch (IOException | RuntimeException e) { // Also covers malformed lines
+            // If an error occurs during input reading, print the error and stop the program
+            System.err.println("Error reading input: " + e.getMessage());
+            return;
+        }
+        if (baseSudoku == null) {
+            System.err.println("Error reading input: no puzzle");
+            return;
+        }
+
+        // Compile the puzzle once; every chromosome references the same model
+        PuzzleModel model = PuzzleModel.compile(baseSudoku);
+
+        if (islandBenchmarkRuns > 0) {
+            benchmarkIslands(baseSudoku, config, islandBenchmarkRuns);
+            return;
+        }
+        if (randomBenchmarkRuns > 0) {
+            benchmarkRandom(baseSudoku, config, randomBenchmarkRuns);
+            return;
+        }
+        if (worker >= 0) {
+            runWorker(baseSudoku, config, worker, workers, sharedFile);
+            return;
+        }
+
+        // Fill the forced cells, then evolve one population, several smaller ones sharing migrants, or race a
+        // portfolio of configurations until a solution appears
+        SolveResult result;
+        try {
+            result = new SudokuSolver(config).solve(baseSudoku);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+        if (config.isStats() && config.isPropagation() && config.getEngine() != SolverConfig.Engine.EXACT) {
+            System.err.println("Propagation fixed " + result.getPropagated() + " of " + model.mutableCount() + " empty cells");
+        }
+        if (!result.isSolved()) {
+            if (config.getEngine() == SolverConfig.Engine.EXACT) {
+                System.err.println("The puzzle has no solution");
+            } else if (config.getMaxGenerations() > 0) {
+                System.err.println("No solution within " + config.getMaxGenerations() + " generations");
+            }
+            return;
+        }
+        if (config.getPortfolio() != null) {
+            reportPortfolio(result, model, portfolioLog);
+        }
+        new Chromosome(result.getSolution(), model).printChromosome(false);
+    }
+
+    // Read one puzzle of 9 lines of 9 space-separated cells, a digit or '-' for an empty cell, skipping blank
+    // lines before it; null at the end of the input
+    static byte[] readPuzzle(BufferedReader reader) throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+        byte[] sudoku = new byte[CELLS];
+        // Reading the Sudoku matrix from the console input
+        for (int i = 0; i < 9; i++) {
+            if (i > 0 && (line = reader.readLine()) == null) {
+                throw new IOException("puzzle cut short after " + i + " lines");
+            }
+            // Split the input by space
+            String[] tokens = line.trim().split(" ");
+            for (int j = 0; j < 9; j++) {
+                if (tokens[j].equals("-")) {
+                    // Empty cells are marked as 0 and become the mutable positions
+                    sudoku[i * 9 + j] = 0;
+                } else {
+                    // Set fixed value from the input
+                    sudoku[i * 9 + j] = (byte) Integer.parseInt(tokens[j]);
+                }
+            }
+        }
+        return sudoku;
+    }
+
+    // Read puzzles until the end of the input
+    static List<byte[]> readPuzzles(BufferedReader reader) throws IOException {
+        List<byte[]> puzzles = new ArrayList<>();
+        for (byte[] puzzle; (puzzle = readPuzzle(reader)) != null; ) {
+            puzzles.add(puzzle);
+        }
+        return puzzles;
+    }
+
+    // Report the winner of a portfolio race and append it to the portfolio log if one was given
+    private static void reportPortfolio(SolveResult result, PuzzleModel model, String portfolioLog) {
+        System.err.printf("Portfolio winner: %s after %.2f s and %d generations%n",
+                result.getWinner(), result.getSeconds(), result.getGenerations());
+        if (portfolioLog != null) {
+            try {
+                Path log = Path.of(portfolioLog);
+                Portfolio.record(log, model, result);
+                System.err.println("Portfolio wins so far: " + Portfolio.tally(log));
+            } catch (IOException e) {
+                System.err.println("Cannot update " + portfolioLog + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // How long a worker that stopped waits for the others to finish or publish a solution
+    private static final long WORKER_WAIT_NANOS = 60_000_000_000L;
+
+    // Evolve one island of a multi-process run and print the solution of whichever worker finished first.
+    // Propagation is deterministic, so every worker fills the same cells and sees the same puzzle.
+    private static void runWorker(byte[] grid, SolverConfig settings, int worker, int workers, String sharedFile) {
+        try {
+            SudokuSolver.validate(grid);
+            Propagator propagator = SudokuSolver.propagate(grid, settings);
+            if (propagator != null) {
+                grid = propagator.getGrid();
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+        PuzzleModel model = PuzzleModel.compile(grid);
+        if (model.mutableCount() == 0) {
+            new Chromosome(grid, model).printChromosome(false);
+            return;
+        }
+        SolverConfig config = settings.forPuzzle(model.mutableCount());
+        SharedFileIslands shared;
+        try {
+            shared = SharedFileIslands.attach(Path.of(sharedFile), workers, model, config.getTopology(),
+                    config.getMigrationInterval(), config.getMigrants());
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("Cannot attach to " + sharedFile + ": " + e.getMessage());
+            return;
+        }
+        Main solver = new Main(config, worker);
+        solver.islands = shared;
+        solver.islandId = worker;
+        solver.label = "Worker " + worker;
+        try {
+            Chromosome found = solver.evolve(model, config.getPopulationSize());
+            if (found != null) {
+                shared.publish(found.getGenome());
+            }
+        } finally {
+            shared.finish();
+        }
+        byte[] solution = shared.awaitSolution(WORKER_WAIT_NANOS);
+        if (solution == null) {
+            System.err.println("No solution: the workers stopped without one, or one did not finish in time");
+            return;
+        }
+        new Chromosome(solution, model).printChromosome(false);
+    }
+
+    // Parse the value of a numeric option, `defaultValue` when the option was given without one
+    private static int intValue(String value, int defaultValue) {
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    // Evolve a population of the given size until a chromosome with fitness 0 appears and return it. As an
+    // island, also exchange migrants every few generations and return null once another island solved it.
+    // A solver evolves once: its breeding threads are shut down on return.
+    public Chromosome evolve(PuzzleModel model, int populationSize) {
+        try {
+            return evolveUntilSolved(model, populationSize);
+        } finally {
+            if (pipeline != null) {
+                pipeline.close();
+                if (config.isStats()) {
+                    System.err.print(pipeline.report());
+                }
+            }
+            if (fitnessCache != null && config.isStats()) {
+                System.err.println(fitnessCache.summary());
+            }
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private Chromosome evolveUntilSolved(PuzzleModel model, int populationSize) {
+        // Generate initial population of chromosomes
+        generateInitialChromosomes(populationSize, model);
+
+        generations = 0; // Track the number of generations
+        // Best slot and fitness statistics of the current population, from one pass over it
+        GenerationStats stats = summarizePopulation();
+        while (true) {
+            if (config.isStats()) {
+                System.err.println((label == null ? "" : label + ", ") + "Generation " + generations + ": " + stats);
+            }
+
+            // If the best solution found has a fitness of 0, return it
+            if (stats.getBestFitness() == 0) {
+                return toChromosome(stats.getBestSlot());
+            }
+            if ((islands != null && islands.isSolved()) || (cancelled != null && cancelled.get())
+                    || (config.getMaxGenerations() > 0 && generations >= config.getMaxGenerations())) {
+                return null;
+            }
+
+            // The steady-state engine breeds from here until solved, without generations to migrate between
+            if (config.isSteadyState()) {
+                return new SteadyState(this).evolve();
+            }
+
+            // Select parents, cross them over and mutate the children into the next population
+            breedNextGeneration();
+
+            // The children become the current population, the old buffer is reused for the next generation
+            population.swap();
+            generations++;
+            stats = summarizePopulation();
+            if (islands != null && generations % islands.getMigrationInterval() == 0) {
+                stats = islands.migrate(this, stats);
+            }
+        }
+    }
+
+    // Generate initial population of chromosomes
+    public void generateInitialChromosomes(int numberOfChromosomes, PuzzleModel model) {
+        this.model = model;
+        population = newPopulationStore(numberOfChromosomes);
+        if (fitnessCache != null) {
+            population.trackHashes();
+        }
+        if (pool == null) {
+            initialize(0, numberOfChromosomes, random);
+        } else {
+            pool.invoke(new InitTask(this, 0, numberOfChromosomes, random.split()));
+        }
+    }
+
+    // Fill slots [from, to) of the current population with random chromosomes. Every box gets a random
+    // permutation of the digits its givens leave out, so boxes never contain duplicates; one scratch genome
+    // holding the givens is reused for the whole range and copied into the store.
+    void initialize(int from, int to, RandomSource random) {
+        byte[] sudoku = new byte[CELLS];
+        byte[] digits = new byte[9];
+        model.copyGivens(sudoku);
+        for (int i = from; i < to; i++) {
+            for (int box = 0; box < 9; box++) {
+                int count = model.copyMissingDigits(box, digits);
+                // Fisher-Yates shuffle of the missing digits straight into the mutable cells
+                for (int k = 0; k < model.mutableCount(box); k++) {
+                    int pick = k + random.nextInt(count - k);
+                    byte digit = digits[pick];
+                    digits[pick] = digits[k];
+                    digits[k] = digit;
+                    sudoku[model.mutableCell(box, k)] = digit;
+                }
+            }
+            // Store the new chromosome and evaluate its fitness, caching its band and stack scores
+            population.writeGenome(i, sudoku);
+            if (fitnessCache != null) {
+                population.setHash(i, FitnessCache.hash(sudoku, 0));
+            }
+            scoreSlot(i);
+        }
+    }
+
+    // Splits the initial population into ranges initialized by the fork/join pool, each with its own generator
+    static final class InitTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int MIN_CHROMOSOMES = 4096;
+        private final Main solver;
+        private final int from, to;
+        private final RandomSource random;
+
+        InitTask(Main solver, int from, int to, RandomSource random) {
+            this.solver = solver;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= MIN_CHROMOSOMES) {
+                solver.initialize(from, to, random);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new InitTask(solver, from, middle, random.split()),
+                    new InitTask(solver, middle, to, random.split()));
+        }
+    }
+
+
+    // Fill the next population, split across the fork/join pool when one is set
+    public void breedNextGeneration() {
+        if (pipeline != null) {
+            pipeline.breed();
+        } else if (pool == null) {
+            breed(0, population.size(), random);
+        } else {
+            pool.invoke(new BreedTask(this, 0, population.size(), random.split()));
+        }
+    }
+
+    // Breed the children in slots [from, to) of the next population two at a time; `from` must be even
+    void breed(int from, int to, RandomSource random) {
+        // Contestants of both tournaments of a pair, drawn in one call
+        int[] contestants = new int[2 * tournamentSize];
+        HillClimber climber = newHillClimber();
+        for (int child = from; child < to; child += 2) {
+            // Select parents using tournament selection
+            random.nextInts(contestants, contestants.length, population.size());
+            int parent1 = tournamentWinner(contestants, 0, tournamentSize);
+            int parent2 = tournamentWinner(contestants, tournamentSize, tournamentSize);
+            // Perform crossover to create two children from the selected parents
+            crossoverBySubgrids(parent1, parent2, child, random);
+            mutateAndClimb(child, climber, random);
+            // An odd population size leaves room for a single child in the last pair
+            if (child + 1 < to) {
+                crossoverBySubgrids(parent2, parent1, child + 1, random);
+                mutateAndClimb(child + 1, climber, random);
+            }
+        }
+    }
+
+    // Splits a range of children in halves (on pair boundaries) until it is small enough to breed directly.
+    // Every task owns a generator split off its parent's, and the leaves write disjoint slots of the next
+    // population, so workers share nothing but the read-only current generation.
+    static final class BreedTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int MIN_CHILDREN = 2048;
+        private final Main solver;
+        private final int from, to;
+        private final RandomSource random;
+
+        BreedTask(Main solver, int from, int to, RandomSource random) {
+            this.solver = solver;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= MIN_CHILDREN) {
+                solver.breed(from, to, random);
+                return;
+            }
+            int middle = from + ((to - from) / 2 & ~1);
+            invokeAll(new BreedTask(solver, from, middle, random.split()),
+                    new BreedTask(solver, middle, to, random.split()));
+        }
+    }
+
+    // One pass over the current population that scores dirty slots (fitness PopulationStore.DIRTY) and
+    // gathers the best slot, mean, variance, worst fitness and fitness histogram; run as a fork/join
+    // reduction when a pool is set. Children are scored as they are bred, so normally nothing is dirty and
+    // this replaces the full re-evaluation and the separate scan for the best chromosome.
+    public GenerationStats summarizePopulation() {
+        if (pool == null) {
+            return summarize(0, population.size());
+        }
+        return pool.invoke(new SummaryTask(this, 0, population.size()));
+    }
+
+    GenerationStats summarize(int from, int to) {
+        GenerationStats stats = new GenerationStats();
+        for (int slot = from; slot < to; slot++) {
+            if (population.getFitness(slot) == PopulationStore.DIRTY) {
+                scoreSlot(slot);
+            }
+            stats.add(slot, population.getFitness(slot));
+        }
+        return stats;
+    }
+
+    static final class SummaryTask extends RecursiveTask<GenerationStats> {
+        private static final long serialVersionUID = 1L;
+        private static final int MIN_SLOTS = 16384;
+        private final Main solver;
+        private final int from, to;
+
+        SummaryTask(Main solver, int from, int to) {
+            this.solver = solver;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected GenerationStats compute() {
+            if (to - from <= MIN_SLOTS) {
+                return solver.summarize(from, to);
+            }
+            int middle = (from + to) >>> 1;
+            SummaryTask right = new SummaryTask(solver, middle, to);
+            right.fork();
+            GenerationStats stats = new SummaryTask(solver, from, middle).compute();
+            stats.merge(right.join());
+            return stats;
+        }
+    }
+
+    // Bounded single-producer single-consumer ring of longs connecting two pipeline stages. The producer
+    // publishes an item with a release store of the tail, the consumer frees its slot with a release store of
+    // the head. A full ring makes the producer wait and an empty one the consumer (spinning briefly, then
+    // yielding), which is the backpressure between stages; the time spent waiting and the depth seen by the
+    // producer are counted. Each counter is only written by one side and read once both threads stopped.
+    static final class LongRing {
+        private static final int SPINS = 64;
+        private final long[] items;
+        private final int mask;
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLong tail = new AtomicLong();
+        // Producer side: next index to write and last head seen
+        private long produced, knownHead;
+        // Consumer side: next index to read and last tail seen
+        private long consumed, knownTail;
+        // Statistics
+        private long fullNanos, emptyNanos, depthSum, maxDepth;
+
+        LongRing(int capacity) {
+            items = new long[Integer.highestOneBit(capacity - 1) << 1];
+            mask = items.length - 1;
+        }
+
+        void put(long item) {
+            if (produced - knownHead == items.length) {
+                knownHead = head.getAcquire();
+                if (produced - knownHead == items.length) {
+                    long start = System.nanoTime();
+                    for (int spins = 0; produced - (knownHead = head.getAcquire()) == items.length; spins++) {
+                        pause(spins);
+                    }
+                    fullNanos += System.nanoTime() - start;
+                }
+            }
+            items[(int) produced & mask] = item;
+            tail.setRelease(++produced);
+            long depth = produced - knownHead;
+            depthSum += depth;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        long take() {
+            if (consumed == knownTail) {
+                knownTail = tail.getAcquire();
+                if (consumed == knownTail) {
+                    long start = System.nanoTime();
+                    for (int spins = 0; consumed == (knownTail = tail.getAcquire()); spins++) {
+                        pause(spins);
+                    }
+                    emptyNanos += System.nanoTime() - start;
+                }
+            }
+            long item = items[(int) consumed & mask];
+            head.setRelease(++consumed);
+            return item;
+        }
+
+        private static void pause(int spins) {
+            if (spins < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+
+        String report(String name) {
+            return String.format("  %-10s capacity %d, mean depth %.1f, max depth %d%n", name, items.length,
+                    produced == 0 ? 0.0 : (double) depthSum / produced, maxDepth);
+        }
+    }
+
+    // Breeds a generation in four stages, each on its own thread, connected by LongRings: selection emits
+    // parent pairs (parent1 << 32 | parent2), crossover builds the children and emits them as
+    // slot << 6 | units, where `units` holds the bands (bits 0-2) and stacks (bits 3-5) that need scoring,
+    // mutation adds the units its operator and the memetic hill climb touched, and evaluation scores them. The GA stays generational,
+    // so the pipeline drains at the end of every generation: main starts one by sending its number to
+    // selection and waits for evaluation to signal that every child is scored. The stages overlap within
+    // a generation, and the report shows which of them waits least, i.e. is the bottleneck. A stage that
+    // throws records the exception, sends FAILED down the line in place of the rest of the generation and
+    // keeps draining its input, so main gets FAILED instead of the end signal and rethrows it.
+    static final class Pipeline {
+        private static final int CAPACITY = 1024;
+        private static final long END = -1; // End of a generation
+        private static final long STOP = -2; // Shut the stages down
+        private static final long FAILED = -3; // A stage threw; the exception is in `failure`
+        private final Main solver;
+        private final LongRing control = new LongRing(2);
+        private final LongRing pairs = new LongRing(CAPACITY);
+        private final LongRing children = new LongRing(CAPACITY);
+        private final LongRing mutants = new LongRing(CAPACITY);
+        private final LongRing done = new LongRing(2);
+        private final Thread[] stages = new Thread[4];
+        // Items each stage handled (parent pairs for selection, children for the others), written by that
+        // stage only
+        private final long[] handled = new long[4];
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private long generation;
+        private long startNanos, elapsedNanos;
+
+        Pipeline(Main solver) {
+            this.solver = solver;
+        }
+
+        // Breed the next generation of the solver's population
+        void breed() {
+            if (stages[0] == null) {
+                start();
+            }
+            control.put(generation++);
+            if (done.take() == FAILED) {
+                throw new IllegalStateException("A pipeline stage failed", failure.get());
+            }
+        }
+
+        private void start() {
+            RandomSource random = solver.random.split();
+            RandomSource selectionRandom = random.split();
+            RandomSource crossoverRandom = random.split();
+            RandomSource mutationRandom = random.split();
+            stages[0] = stage("selection", control, pairs, () -> select(selectionRandom));
+            stages[1] = stage("crossover", pairs, children, () -> crossover(crossoverRandom));
+            stages[2] = stage("mutation", children, mutants, () -> mutate(mutationRandom));
+            stages[3] = stage("evaluation", mutants, done, this::evaluate);
+            startNanos = System.nanoTime();
+            for (Thread stage : stages) {
+                stage.setDaemon(true);
+                stage.start();
+            }
+        }
+
+        // Thread running one stage; if the stage throws, the first exception is kept and the stage turns
+        // into a drain that forwards FAILED and, once its input stops, STOP
+        private Thread stage(String name, LongRing input, LongRing output, Runnable body) {
+            return new Thread(() -> {
+                try {
+                    body.run();
+                } catch (RuntimeException | Error e) {
+                    failure.compareAndSet(null, e);
+                    output.put(FAILED);
+                    while (input.take() != STOP) {
+                        // Discard the rest of the stream
+                    }
+                    if (output != done) {
+                        output.put(STOP);
+                    }
+                }
+            }, "pipeline-" + name);
+        }
+
+        private void select(RandomSource random) {
+            int tournamentSize = solver.tournamentSize;
+            int[] contestants = new int[2 * tournamentSize];
+            while (control.take() != STOP) {
+                int size = solver.population.size();
+                for (int child = 0; child < size; child += 2) {
+                    random.nextInts(contestants, contestants.length, size);
+                    int parent1 = solver.tournamentWinner(contestants, 0, tournamentSize);
+                    int parent2 = solver.tournamentWinner(contestants, tournamentSize, tournamentSize);
+                    pairs.put((long) parent1 << 32 | parent2);
+                    handled[0]++;
+                }
+                pairs.put(END);
+            }
+            pairs.put(STOP);
+        }
+
+        private void crossover(RandomSource random) {
+            int child = 0;
+            for (long item; (item = pairs.take()) != STOP; ) {
+                if (item == END || item == FAILED) {
+                    children.put(item);
+                    child = 0;
+                    continue;
+                }
+                int parent1 = (int) (item >>> 32);
+                int parent2 = (int) item;
+                int selected = solver.recombine(parent1, parent2, child, random);
+                children.put((long) child << 6 | solver.inheritUnitScores(parent1, parent2, child, selected));
+                handled[1]++;
+                // An odd population size leaves room for a single child in the last pair
+                if (child + 1 < solver.population.size()) {
+                    selected = solver.recombine(parent2, parent1, child + 1, random);
+                    children.put((long) (child + 1) << 6
+                            | solver.inheritUnitScores(parent2, parent1, child + 1, selected));
+                    handled[1]++;
+                }
+                child += 2;
+            }
+            children.put(STOP);
+        }
+
+        private void mutate(RandomSource random) {
+            HillClimber climber = solver.newHillClimber();
+            for (long item; (item = children.take()) != STOP; ) {
+                if (item == END || item == FAILED) {
+                    mutants.put(item);
+                    continue;
+                }
+                int child = (int) (item >>> 6);
+                mutants.put(item | solver.mutate(child, solver.mutationRate, random) | solver.climb(child, climber, random));
+                handled[2]++;
+            }
+            mutants.put(STOP);
+        }
+
+        private void evaluate() {
+            for (long item; (item = mutants.take()) != STOP; ) {
+                if (item == END || item == FAILED) {
+                    done.put(item);
+                    continue;
+                }
+                int child = (int) (item >>> 6);
+                int units = (int) item & 63;
+                PopulationStore population = solver.population;
+                population.setNextFitness(child, population.scoreNextBandsAndStacks(child, units & 7, units >>> 3));
+                solver.evaluations.increment();
+                handled[3]++;
+            }
+        }
+
+        // Stop the stage threads and wait for them, so the counters can be read
+        void close() {
+            if (stages[0] == null || elapsedNanos != 0) {
+                return;
+            }
+            control.put(STOP);
+            for (Thread stage : stages) {
+                try {
+                    stage.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            elapsedNanos = System.nanoTime() - startNanos;
+        }
+
+        // Items per second of every stage with the share of time it waited for input (idle) and for room in
+        // its output (blocked), and the depth of every queue
+        String report() {
+            if (elapsedNanos == 0) {
+                return "";
+            }
+            String[] names = {"selection", "crossover", "mutation", "evaluation"};
+            LongRing[] inputs = {control, pairs, children, mutants};
+            LongRing[] outputs = {pairs, children, mutants, done};
+            StringBuilder sb = new StringBuilder("Pipeline, " + generation + " generations:\n");
+            for (int i = 0; i < 4; i++) {
+                sb.append(String.format("  %-10s %.0f items/s, idle %.0f%%, blocked %.0f%%%n", names[i],
+                        handled[i] * 1e9 / elapsedNanos, 100.0 * inputs[i].emptyNanos / elapsedNanos,
+                        100.0 * outputs[i].fullNanos / elapsedNanos));
+            }
+            sb.append(pairs.report("pairs")).append(children.report("children")).append(mutants.report("mutants"));
+            return sb.toString();
+        }
+    }
+
+    // Steady-state engine (--steady-state): workers breed without a generation barrier. Each one repeatedly
+    // picks two parents by tournament, builds one child with the solver's crossover and mutation operators,
+    // scores it and writes it in place over its first parent if the child is no worse (replacing the worst
+    // of the population instead lets one plateau take it over within a few generations). Slots of the heap
+    // arena's current buffer are guarded by one seqlock word each, version << 32 | fitness: a reader keeps
+    // its copy of a parent only if the word was even and unchanged around the copy, and a writer claims
+    // the slot by CASing the word it read with the parent to the next odd version, so only one writer gets
+    // in and only while the slot still holds that parent; it copies the child and publishes the next even
+    // version with the child's fitness. Tournaments read fitness straight from the words. The next buffer
+    // and the cached unit scores are not used, so they are stale afterwards.
+    static final class SteadyState {
+        private static final long VERSION = 1L << 32;
+        private final Main solver;
+        private final PuzzleModel model;
+        private final byte[] genomes;
+        private final int size;
+        private final AtomicLongArray words;
+        private final AtomicLong births = new AtomicLong();
+        private final AtomicReference<byte[]> solution = new AtomicReference<>();
+        // Children written over a slot, and children dropped because another writer claimed the slot first
+        private final LongAdder replacements = new LongAdder();
+        private final LongAdder collisions = new LongAdder();
+        // Set once a solution was found, a worker failed or the race was cancelled
+        private volatile boolean stopped;
+        // Children after which the run gives up, the configured generation limit in children (0 for none)
+        private final long maxBirths;
+
+        SteadyState(Main solver) {
+            this.solver = solver;
+            this.model = solver.model;
+            PopulationArena population = (PopulationArena) solver.population;
+            this.genomes = population.genomes();
+            this.size = population.size();
+            this.words = new AtomicLongArray(size);
+            this.maxBirths = (long) solver.config.getMaxGenerations() * size;
+            for (int slot = 0; slot < size; slot++) {
+                words.set(slot, population.getFitness(slot)); // Version 0
+            }
+        }
+
+        // Breed until a worker finds a solution (returned) or the solver is cancelled (null). Runs one worker
+        // per thread of the solver's pool, or a single one on the calling thread without a pool.
+        Chromosome evolve() {
+            if (solver.pool == null) {
+                work(solver.random.split());
+            } else {
+                ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[solver.pool.getParallelism()];
+                for (int i = 0; i < tasks.length; i++) {
+                    RandomSource random = solver.random.split();
+                    tasks[i] = solver.pool.submit(() -> work(random));
+                }
+                for (ForkJoinTask<?> task : tasks) {
+                    task.join();
+                }
+            }
+            // One generation is as many children as the population holds
+            solver.generations = (int) (births.get() / size);
+            if (solver.config.isStats()) {
+                System.err.printf("Steady state: %d children, %d replacements, %d lost to another writer%n",
+                        births.get(), replacements.sum(), collisions.sum());
+            }
+            byte[] found = solution.get();
+            return found == null ? null : new Chromosome(found, model);
+        }
+
+        private void work(RandomSource random) {
+            byte[] parent1 = new byte[CELLS];
+            byte[] parent2 = new byte[CELLS];
+            byte[] child = new byte[CELLS];
+            HillClimber climber = solver.newHillClimber();
+            AtomicBoolean cancelled = solver.cancelled;
+            try {
+                while (!stopped && (cancelled == null || !cancelled.get())) {
+                    // A parent being rewritten is skipped, another tournament picks a stable one
+                    int parent1Slot;
+                    long parent1Word;
+                    while ((parent1Word = read(parent1Slot = select(random), parent1)) < 0) {
+                        Thread.onSpinWait();
+                    }
+                    while (read(select(random), parent2) < 0) {
+                        Thread.onSpinWait();
+                    }
+                    crossover(parent1, parent2, child, random);
+                    mutate(child, random);
+                    // The hill climb counts the conflicts anyway and returns them
+                    int fitness = climber != null && random.nextDouble() < solver.memeticRate
+                            ? climber.climb(child, random) : evaluateGenome(child, 0);
+                    solver.evaluations.increment();
+                    if (fitness == 0) {
+                        solution.compareAndSet(null, child.clone());
+                        return;
+                    }
+                    // A child equal to a parent would only crowd out diversity
+                    if (!Arrays.equals(child, parent1) && !Arrays.equals(child, parent2)) {
+                        replace(parent1Slot, parent1Word, child, fitness);
+                    }
+                    long birth = births.incrementAndGet();
+                    if (birth == maxBirths) {
+                        return;
+                    }
+                    if (solver.config.isStats() && birth % size == 0) {
+                        GenerationStats stats = new GenerationStats();
+                        for (int slot = 0; slot < size; slot++) {
+                            stats.add(slot, (int) words.get(slot));
+                        }
+                        System.err.println((solver.label == null ? "" : solver.label + ", ") + "Generation "
+                                + birth / size + ": " + stats);
+                    }
+                }
+            } finally {
+                // Whoever stops first, for whatever reason, stops the other workers too
+                stopped = true;
+            }
+        }
+
+        // Tournament over the fitness held in the slot words
+        private int select(RandomSource random) {
+            int best = random.nextInt(size);
+            int bestFitness = (int) words.get(best);
+            for (int j = 1; j < solver.tournamentSize; j++) {
+                int candidate = random.nextInt(size);
+                int fitness = (int) words.get(candidate);
+                if (fitness < bestFitness) {
+                    best = candidate;
+                    bestFitness = fitness;
+                }
+            }
+            return best;
+        }
+
+        // Copy the genome of a slot and return the slot's word, -1 if a writer held the slot or replaced it
+        // during the copy
+        private long read(int slot, byte[] genome) {
+            long word = words.get(slot);
+            if ((word & VERSION) != 0) {
+                return -1;
+            }
+            System.arraycopy(genomes, PopulationArena.offset(slot), genome, 0, CELLS);
+            VarHandle.loadLoadFence();
+            return words.get(slot) == word ? word : -1;
+        }
+
+        // Write the child over the parent it was copied from unless the child is worse, or that slot changed
+        // since the parent was read (its word is no longer `word`)
+        private void replace(int slot, long word, byte[] child, int fitness) {
+            // Ties are replaced too, which lets the population drift across plateaus
+            if ((int) word < fitness) {
+                return;
+            }
+            if (!words.compareAndSet(slot, word, word + VERSION)) {
+                collisions.increment();
+                return;
+            }
+            System.arraycopy(child, 0, genomes, PopulationArena.offset(slot), CELLS);
+            words.set(slot, ((word >>> 32) + 2) << 32 | fitness);
+            replacements.increment();
+        }
+
+        // Copy parent1 into the child and replace 1-5 random boxes with parent2's, like recombine()
+        private void crossover(byte[] parent1, byte[] parent2, byte[] child, RandomSource random) {
+            System.arraycopy(parent1, 0, child, 0, CELLS);
+            int selectedSubgrids = randomSubgrids(random);
+            for (int subgrid = 0; subgrid < 9; subgrid++) {
+                if ((selectedSubgrids & (1 << subgrid)) != 0) {
+                    for (int cell : PuzzleModel.BOX_CELLS[subgrid]) {
+                        child[cell] = parent2[cell];
                     }
                 }
             }
-        } catch (IOException e) {
-            // If an error occurs during input reading, print the error and stop the program
-            System.err.println("Error reading input: " + e.getMessage());
-            return;
         }
 
-        Main mainInstance = new Main(); // Create instance of Main class
+        // Apply the solver's mutation operator with its mutation rate, like mutate() does on the store
+        private void mutate(byte[] child, RandomSource random) {
+            if (random.nextDouble() >= solver.mutationRate) {
+                return;
+            }
+            if (solver.mutation == Mutation.CELL_SWAP) {
+                int box = random.nextInt(9);
+                for (int tried = 1; model.mutableCount(box) < 2; tried++) {
+                    if (tried == 9) {
+                        return; // No box has two mutable cells
+                    }
+                    box = (box + 1) % 9;
+                }
+                int first = random.nextInt(model.mutableCount(box));
+                int second = random.nextInt(model.mutableCount(box) - 1);
+                int cellA = model.mutableCell(box, first);
+                int cellB = model.mutableCell(box, second < first ? second : second + 1);
+                byte value = child[cellA];
+                child[cellA] = child[cellB];
+                child[cellB] = value;
+                return;
+            }
+            int subgrid1 = random.nextInt(9);
+            int subgrid2 = (subgrid1 + 1 + random.nextInt(8)) % 9;
+            for (int i = 0; i < 9; i++) {
+                int cellA = PuzzleModel.BOX_CELLS[subgrid1][i];
+                int cellB = PuzzleModel.BOX_CELLS[subgrid2][i];
+                byte value = child[cellA];
+                child[cellA] = child[cellB];
+                child[cellB] = value;
+            }
+        }
+    }
+
+    // Source of the random numbers of one solver thread. Implementations are not thread-safe: every thread
+    // takes its own stream with split(), so no generator state is shared, unlike a single java.util.Random
+    // whose seed is a CAS on an AtomicLong. nextInts() fills a buffer in one call, letting an implementation
+    // keep its state in registers and use all 64 bits of a step.
+    public interface RandomSource extends RandomGenerator {
+        enum Kind {
+            XOSHIRO,    // xoshiro256++, the default
+            SPLITTABLE, // java.util.SplittableRandom
+            LEGACY      // java.util.Random, kept as the baseline of --bench-random
+        }
+
+        // A new independent stream for another thread
+        RandomSource split();
+
+        // Fill buffer[0, count) with uniform ints in [0, bound)
+        default void nextInts(int[] buffer, int count, int bound) {
+            for (int i = 0; i < count; i++) {
+                buffer[i] = nextInt(bound);
+            }
+        }
+
+        // A stream of the given kind; equal seeds give equal streams
+        static RandomSource create(Kind kind, long seed) {
+            switch (kind) {
+                case SPLITTABLE:
+                    return new Splittable(new SplittableRandom(seed));
+                case LEGACY:
+                    return new Legacy(new Random(seed));
+                default:
+                    return new Xoshiro256(seed);
+            }
+        }
+
+        // xoshiro256++ (Blackman and Vigna), seeded through SplitMix64. Bounded ints use the multiply-shift
+        // reduction of the high 32 bits of a step, whose bias (under bound / 2^32) does not matter here.
+        final class Xoshiro256 implements RandomSource {
+            private long s0, s1, s2, s3;
+
+            public Xoshiro256(long seed) {
+                long x = seed;
+                s0 = mix(x += 0x9E3779B97F4A7C15L);
+                s1 = mix(x += 0x9E3779B97F4A7C15L);
+                s2 = mix(x += 0x9E3779B97F4A7C15L);
+                s3 = mix(x + 0x9E3779B97F4A7C15L);
+            }
+
+            // SplitMix64 output function
+            private static long mix(long z) {
+                z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+                z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+                return z ^ (z >>> 31);
+            }
+
+            @Override
+            public long nextLong() {
+                long result = Long.rotateLeft(s0 + s3, 23) + s0;
+                long t = s1 << 17;
+                s2 ^= s0;
+                s3 ^= s1;
+                s1 ^= s2;
+                s0 ^= s3;
+                s2 ^= t;
+                s3 = Long.rotateLeft(s3, 45);
+                return result;
+            }
+
+            @Override
+            public int nextInt(int bound) {
+                return (int) (((nextLong() >>> 32) * bound) >>> 32);
+            }
+
+            @Override
+            public RandomSource split() {
+                return new Xoshiro256(nextLong());
+            }
+
+            // Two bounded ints from every step, with the state held in locals for the whole buffer
+            @Override
+            public void nextInts(int[] buffer, int count, int bound) {
+                long a = s0, b = s1, c = s2, d = s3;
+                for (int i = 0; i < count; i += 2) {
+                    long result = Long.rotateLeft(a + d, 23) + a;
+                    long t = b << 17;
+                    c ^= a;
+                    d ^= b;
+                    b ^= c;
+                    a ^= d;
+                    c ^= t;
+                    d = Long.rotateLeft(d, 45);
+                    buffer[i] = (int) (((result >>> 32) * bound) >>> 32);
+                    if (i + 1 < count) {
+                        buffer[i + 1] = (int) (((result & 0xFFFFFFFFL) * bound) >>> 32);
+                    }
+                }
+                s0 = a;
+                s1 = b;
+                s2 = c;
+                s3 = d;
+            }
+        }
+
+        final class Splittable implements RandomSource {
+            private final SplittableRandom random;
+
+            public Splittable(SplittableRandom random) {
+                this.random = random;
+            }
+
+            @Override
+            public long nextLong() {
+                return random.nextLong();
+            }
+
+            @Override
+            public int nextInt(int bound) {
+                return random.nextInt(bound);
+            }
+
+            @Override
+            public double nextDouble() {
+                return random.nextDouble();
+            }
+
+            @Override
+            public RandomSource split() {
+                return new Splittable(random.split());
+            }
+        }
+
+        final class Legacy implements RandomSource {
+            private final Random random;
+
+            public Legacy(Random random) {
+                this.random = random;
+            }
+
+            @Override
+            public long nextLong() {
+                return random.nextLong();
+            }
+
+            @Override
+            public int nextInt(int bound) {
+                return random.nextInt(bound);
+            }
+
+            @Override
+            public double nextDouble() {
+                return random.nextDouble();
+            }
+
+            @Override
+            public RandomSource split() {
+                return new Legacy(new Random(random.nextLong()));
+            }
+        }
+    }
+
+    // Constraint propagation run on the givens before evolution. Every empty cell keeps a mask of candidate
+    // digits (bit d for digit d), and three rules repeat until none of them changes anything:
+    //   naked single: a cell left with one candidate takes it;
+    //   hidden single: a digit with one possible cell in a row, column or box goes there;
+    //   locked candidates: a digit whose candidates in a box lie in one row or column is removed from the
+    //     rest of that row or column, and one whose candidates in a row or column lie in one box is removed
+    //     from the rest of that box.
+    // The filled cells become givens, so the GA gets fewer mutable cells and maybe an easier tier.
+    public static final class Propagator {
+        private static final int ALL = 0x3FE; // Bits 1..9
+        // The 27 units: rows 0-8, columns 9-17, boxes 18-26
+        private static final int[][] UNITS = new int[27][9];
+
+        static {
+            for (int i = 0; i < 9; i++) {
+                for (int j = 0; j < 9; j++) {
+                    UNITS[i][j] = i * 9 + j;
+                    UNITS[9 + i][j] = j * 9 + i;
+                }
+                UNITS[18 + i] = PuzzleModel.BOX_CELLS[i].clone();
+            }
+        }
+
+        private final byte[] grid;
+        private final int[] candidates = new int[CELLS];
+        private int fixed;
+        private boolean contradiction;
+        private boolean changed;
+
+        private Propagator(byte[] givens) {
+            grid = givens.clone();
+            for (int cell = 0; cell < CELLS; cell++) {
+                candidates[cell] = grid[cell] == 0 ? ALL : 0;
+            }
+            for (int cell = 0; cell < CELLS; cell++) {
+                if (grid[cell] != 0) {
+                    eliminatePeers(cell, grid[cell]);
+                }
+            }
+        }
+
+        // Propagate a grid of 81 cells (0 for empty) until no rule applies; the grid is not modified
+        public static Propagator run(byte[] givens) {
+            Propagator propagator = new Propagator(givens);
+            do {
+                propagator.changed = false;
+                propagator.nakedSingles();
+                propagator.hiddenSingles();
+                propagator.lockedCandidates();
+            } while (propagator.changed && !propagator.contradiction);
+            return propagator;
+        }
+
+        // The givens with every forced cell filled in
+        public byte[] getGrid() {
+            return grid.clone();
+        }
+
+        // Number of cells filled in
+        public int getFixed() {
+            return fixed;
+        }
+
+        public boolean isSolved() {
+            for (byte value : grid) {
+                if (value == 0) {
+                    return false;
+                }
+            }
+            return !contradiction;
+        }
+
+        // True if the givens contradict each other, so the puzzle has no solution
+        public boolean isContradiction() {
+            return contradiction;
+        }
+
+        private void place(int cell, int digit) {
+            grid[cell] = (byte) digit;
+            candidates[cell] = 0;
+            fixed++;
+            changed = true;
+            eliminatePeers(cell, digit);
+        }
+
+        private void eliminatePeers(int cell, int digit) {
+            for (int peer : PuzzleModel.PEERS[cell]) {
+                if (grid[peer] == digit) {
+                    contradiction = true; // Two givens (or a given and a forced cell) repeat a digit
+                }
+                candidates[peer] &= ~(1 << digit);
+            }
+        }
+
+        private void nakedSingles() {
+            for (int cell = 0; cell < CELLS && !contradiction; cell++) {
+                if (grid[cell] != 0) {
+                    continue;
+                }
+                int mask = candidates[cell];
+                if (mask == 0) {
+                    contradiction = true;
+                } else if (Integer.bitCount(mask) == 1) {
+                    place(cell, Integer.numberOfTrailingZeros(mask));
+                }
+            }
+        }
+
+        private void hiddenSingles() {
+            for (int[] unit : UNITS) {
+                int placed = 0;
+                for (int cell : unit) {
+                    placed |= 1 << grid[cell];
+                }
+                for (int digit = 1; digit <= 9 && !contradiction; digit++) {
+                    if ((placed & (1 << digit)) != 0) {
+                        continue;
+                    }
+                    int count = 0;
+                    int last = -1;
+                    for (int cell : unit) {
+                        if ((candidates[cell] & (1 << digit)) != 0) {
+                            count++;
+                            last = cell;
+                        }
+                    }
+                    if (count == 0) {
+                        contradiction = true;
+                    } else if (count == 1) {
+                        place(last, digit);
+                    }
+                }
+            }
+        }
+
+        private void lockedCandidates() {
+            for (int digit = 1; digit <= 9; digit++) {
+                int bit = 1 << digit;
+                // Pointing: a box's candidates for the digit confined to one row or column
+                for (int box = 0; box < 9; box++) {
+                    int rows = 0, columns = 0;
+                    for (int cell : PuzzleModel.BOX_CELLS[box]) {
+                        if ((candidates[cell] & bit) != 0) {
+                            rows |= 1 << PuzzleModel.ROW[cell];
+                            columns |= 1 << PuzzleModel.COLUMN[cell];
+                        }
+                    }
+                    if (Integer.bitCount(rows) == 1) {
+                        eliminateOutsideBox(UNITS[Integer.numberOfTrailingZeros(rows)], box, bit);
+                    }
+                    if (Integer.bitCount(columns) == 1) {
+                        eliminateOutsideBox(UNITS[9 + Integer.numberOfTrailingZeros(columns)], box, bit);
+                    }
+                }
+                // Claiming: a row's or column's candidates for the digit confined to one box
+                for (int line = 0; line < 18; line++) {
+                    int boxes = 0;
+                    for (int cell : UNITS[line]) {
+                        if ((candidates[cell] & bit) != 0) {
+                            boxes |= 1 << PuzzleModel.BOX[cell];
+                        }
+                    }
+                    if (Integer.bitCount(boxes) == 1) {
+                        int box = Integer.numberOfTrailingZeros(boxes);
+                        for (int cell : PuzzleModel.BOX_CELLS[box]) {
+                            boolean onLine = line < 9 ? PuzzleModel.ROW[cell] == line : PuzzleModel.COLUMN[cell] == line - 9;
+                            if (!onLine && (candidates[cell] & bit) != 0) {
+                                candidates[cell] &= ~bit;
+                                changed = true;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        // Remove a candidate from the cells of a row or column outside the given box
+        private void eliminateOutsideBox(int[] line, int box, int bit) {
+            for (int cell : line) {
+                if (PuzzleModel.BOX[cell] != box && (candidates[cell] & bit) != 0) {
+                    candidates[cell] &= ~bit;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    // Exact engine (--engine=exact): depth-first backtracking over bitmask candidates. Digits used by every
+    // row, column and box are kept as masks (bit d for digit d), so a cell's candidates are one OR and one
+    // AND. Each step fills the empty cell with the fewest candidates, swapping it into the next position of
+    // the search order, and the candidates left to try at every depth live in a fixed-size array, so the
+    // search runs in a loop without recursion or allocation. An instance can be reused but not shared.
+    public static final class ExactSolver {
+        private static final int ALL = 0x3FE; // Bits 1..9
+        private final byte[] grid = new byte[CELLS];
+        private final int[] rows = new int[9];
+        private final int[] columns = new int[9];
+        private final int[] boxes = new int[9];
+        // Empty cells in search order; order[depth] is the cell filled at that depth
+        private final int[] order = new int[CELLS];
+        // Candidates not tried yet for the cell at every depth
+        private final int[] untried = new int[CELLS];
+        private long nodes;
+
+        // Solve a grid of 81 cells (0 for empty); false if it has no solution. The grid is not modified.
+        public boolean solve(byte[] givens) {
+            Arrays.fill(rows, 0);
+            Arrays.fill(columns, 0);
+            Arrays.fill(boxes, 0);
+            nodes = 0;
+            int empty = 0;
+            for (int cell = 0; cell < CELLS; cell++) {
+                grid[cell] = givens[cell];
+                if (givens[cell] == 0) {
+                    order[empty++] = cell;
+                } else {
+                    int bit = 1 << givens[cell];
+                    if (((rows[PuzzleModel.ROW[cell]] | columns[PuzzleModel.COLUMN[cell]] | boxes[PuzzleModel.BOX[cell]]) & bit) != 0) {
+                        return false; // A given repeats a digit
+                    }
+                    toggle(cell, bit);
+                }
+            }
+            if (empty == 0) {
+                return true;
+            }
+            int depth = 0;
+            choose(depth, empty);
+            while (true) {
+                int cell = order[depth];
+                if (grid[cell] != 0) {
+                    toggle(cell, 1 << grid[cell]); // Take back the digit tried last at this depth
+                    grid[cell] = 0;
+                }
+                int candidates = untried[depth];
+                if (candidates == 0) {
+                    if (depth == 0) {
+                        return false;
+                    }
+                    depth--;
+                    continue;
+                }
+                int bit = candidates & -candidates;
+                untried[depth] = candidates ^ bit;
+                grid[cell] = (byte) Integer.numberOfTrailingZeros(bit);
+                toggle(cell, bit);
+                nodes++;
+                if (++depth == empty) {
+                    return true;
+                }
+                choose(depth, empty);
+            }
+        }
+
+        // The solved grid after solve() returned true
+        public byte[] getGrid() {
+            return grid.clone();
+        }
+
+        // Digits placed during the last search
+        public long getNodes() {
+            return nodes;
+        }
+
+        // Move the open cell with the fewest candidates to order[depth] and take its candidates
+        private void choose(int depth, int empty) {
+            int best = depth;
+            int bestCandidates = 0;
+            int bestCount = 10;
+            for (int i = depth; i < empty; i++) {
+                int cell = order[i];
+                int candidates = ALL & ~(rows[PuzzleModel.ROW[cell]] | columns[PuzzleModel.COLUMN[cell]]
+                        | boxes[PuzzleModel.BOX[cell]]);
+                int count = Integer.bitCount(candidates);
+                if (count < bestCount) {
+                    best = i;
+                    bestCandidates = candidates;
+                    bestCount = count;
+                    if (count <= 1) {
+                        break; // Nothing beats a forced cell or a dead end
+                    }
+                }
+            }
+            int cell = order[best];
+            order[best] = order[depth];
+            order[depth] = cell;
+            untried[depth] = bestCandidates;
+        }
+
+        private void toggle(int cell, int bit) {
+            rows[PuzzleModel.ROW[cell]] ^= bit;
+            columns[PuzzleModel.COLUMN[cell]] ^= bit;
+            boxes[PuzzleModel.BOX[cell]] ^= bit;
+        }
+    }
+
+    // Base of the local search engines (annealing and tabu), working on the GA's representation: every box
+    // holds a permutation of the digits its givens leave out, and a move swaps two mutable cells of one box, so
+    // only row and column conflicts are ever counted, in O(1) per move from per-row and per-column digit
+    // counts (see HillClimber). Several chains of one engine race on their own threads; the first to reach
+    // zero conflicts wins and stops the others.
+    public abstract static class LocalSearch {
+        protected final PuzzleModel model;
+        protected final SolverConfig config;
+        protected final RandomSource random;
+        protected final byte[] sudoku = new byte[CELLS];
+        private final ConflictCounts counts = new ConflictCounts();
+        // Boxes with at least two mutable cells
+        protected final int[] boxes;
+        protected int cost;
+        // Steps of the search (temperature steps or tabu iterations) and moves evaluated so far
+        protected int steps;
+        protected long moves;
+
+        // One chain on a compiled puzzle, drawing from `random`
+        protected LocalSearch(PuzzleModel model, SolverConfig config, RandomSource random) {
+            this.model = model;
+            this.config = config;
+            this.random = random;
+            int count = 0;
+            for (int box = 0; box < 9; box++) {
+                count += model.mutableCount(box) >= 2 ? 1 : 0;
+            }
+            boxes = new int[count];
+            count = 0;
+            for (int box = 0; box < 9; box++) {
+                if (model.mutableCount(box) >= 2) {
+                    boxes[count++] = box;
+                }
+            }
+        }
+
+        // Search from a random filling of the boxes; true once the grid has no conflicts, false if the step
+        // limit (the configured generation limit, 0 for none) was reached or `stop` raised
+        public abstract boolean search(AtomicBoolean stop);
+
+        // Final state of the chain for --stats
+        protected abstract String summary();
+
+        // Run the chains until one solves the puzzle or all give up; `name` labels the winner
+        static SolveResult race(LocalSearch[] chains, String name) {
+            long start = System.nanoTime();
+            AtomicBoolean stop = new AtomicBoolean();
+            AtomicInteger winner = new AtomicInteger(-1);
+            if (chains.length == 1) {
+                if (chains[0].search(stop)) {
+                    winner.set(0);
+                }
+            } else {
+                Thread[] threads = new Thread[chains.length];
+                for (int i = 0; i < chains.length; i++) {
+                    LocalSearch chain = chains[i];
+                    int index = i;
+                    threads[i] = new Thread(() -> {
+                        if (chain.search(stop) && winner.compareAndSet(-1, index)) {
+                            stop.set(true);
+                        }
+                    }, name + "-" + i);
+                    threads[i].start();
+                }
+                for (Thread thread : threads) {
+                    try {
+                        thread.join();
+                    } catch (InterruptedException e) {
+                        stop.set(true);
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            long moves = 0;
+            for (int i = 0; i < chains.length; i++) {
+                moves += chains[i].moves;
+                if (chains[i].config.isStats()) {
+                    System.err.println(name + " chain " + i + ": " + chains[i].summary());
+                }
+            }
+            int won = winner.get();
+            if (won < 0) {
+                return new SolveResult(null, 0, moves, elapsed, null);
+            }
+            return new SolveResult(chains[won].getGrid(), chains[won].steps, moves, elapsed, name + " chain " + won);
+        }
+
+        // Fill every box with a random permutation of its missing digits and count the conflicts
+        protected void fill() {
+            byte[] digits = new byte[9];
+            model.copyGivens(sudoku);
+            for (int box = 0; box < 9; box++) {
+                int count = model.copyMissingDigits(box, digits);
+                // As in initialize(), a shuffle only as long as the box has mutable cells to take the digits
+                for (int k = 0; k < model.mutableCount(box); k++) {
+                    int pick = k + random.nextInt(count - k);
+                    byte digit = digits[pick];
+                    digits[pick] = digits[k];
+                    digits[k] = digit;
+                    sudoku[model.mutableCell(box, k)] = digit;
+                }
+            }
+            cost = counts.count(sudoku);
+        }
+
+        // Change in conflicts if the two cells (of one box) swapped their digits
+        protected final int delta(int cellA, int cellB) {
+            return counts.delta(sudoku, cellA, cellB);
+        }
+
+        // Swap the digits of two cells of one box, `delta` being the change delta() reported
+        protected final void swap(int cellA, int cellB, int delta) {
+            counts.swap(sudoku, cellA, cellB);
+            cost += delta;
+        }
+
+        // True if the cell's digit repeats in its row or column
+        protected final boolean isConflicted(int cell) {
+            return counts.isConflicted(sudoku, cell);
+        }
+
+        // The current grid, 81 cells stored row by row
+        public byte[] getGrid() {
+            return sudoku.clone();
+        }
+
+        public int getCost() {
+            return cost;
+        }
+
+        public int getSteps() {
+            return steps;
+        }
+
+        public long getMoves() {
+            return moves;
+        }
+    }
+
+    // Simulated annealing engine (--engine=annealing). Each temperature step tries (mutable cells)^2 random
+    // moves, accepting a worse one with probability exp(-delta / T); the temperature then cools geometrically
+    // or linearly, and is reset to the initial one (a reheat) once the best cost has not improved for a
+    // number of steps. The initial temperature defaults to the standard deviation of the cost over a short
+    // random walk.
+    public static final class Annealer extends LocalSearch {
+        public enum Cooling {
+            GEOMETRIC, // T *= rate after every temperature step
+            LINEAR     // T -= T0 * (1 - rate) after every temperature step, down to 0
+        }
+
+        private static final int WALK = 200; // Random moves sampled for the initial temperature
+        // A swap adds at most one conflict to each of the two rows and two columns it touches
+        private static final int MAX_DELTA = 4;
+        private int reheats;
+
+        public Annealer(PuzzleModel model, SolverConfig config, RandomSource random) {
+            super(model, config, random);
+        }
+
+        // Run the annealing chains of `config` on a compiled puzzle
+        public static SolveResult solve(PuzzleModel model, SolverConfig config) {
+            LocalSearch[] chains = new LocalSearch[config.getChains()];
+            for (int i = 0; i < chains.length; i++) {
+                chains[i] = new Annealer(model, config, config.newRandomSource(i));
+            }
+            return race(chains, "annealing");
+        }
+
+        @Override
+        public boolean search(AtomicBoolean stop) {
+            fill();
+            if (boxes.length == 0) {
+                return cost == 0; // No box has two cells to swap, the filling is final
+            }
+            double initial = Double.isNaN(config.getTemperature()) ? estimateTemperature() : config.getTemperature();
+            double temperature = initial;
+            int stepMoves = model.mutableCount() * model.mutableCount();
+            int maxSteps = config.getMaxGenerations();
+            // Lowest cost since the last reheat, so a reheat is only triggered by a chain that stopped improving
+            int best = cost;
+            int sinceImproved = 0;
+            // Probability of accepting a move that adds `delta` conflicts at the current temperature
+            double[] acceptance = new double[MAX_DELTA + 1];
+            while (cost > 0 && !stop.get() && (maxSteps == 0 || steps < maxSteps)) {
+                for (int delta = 1; delta <= MAX_DELTA; delta++) {
+                    acceptance[delta] = temperature > 0 ? Math.exp(-delta / temperature) : 0;
+                }
+                for (int i = 0; i < stepMoves && cost > 0; i++) {
+                    int box = boxes[random.nextInt(boxes.length)];
+                    int first = random.nextInt(model.mutableCount(box));
+                    int second = random.nextInt(model.mutableCount(box) - 1);
+                    int cellA = model.mutableCell(box, first);
+                    int cellB = model.mutableCell(box, second < first ? second : second + 1);
+                    int delta = delta(cellA, cellB);
+                    if (delta <= 0 || random.nextDouble() < acceptance[delta]) {
+                        swap(cellA, cellB, delta);
+                    }
+                }
+                moves += stepMoves;
+                steps++;
+                if (cost < best) {
+                    best = cost;
+                    sinceImproved = 0;
+                } else if (config.getReheat() > 0 && ++sinceImproved >= config.getReheat()) {
+                    temperature = initial;
+                    best = Integer.MAX_VALUE;
+                    sinceImproved = 0;
+                    reheats++;
+                    continue;
+                }
+                temperature = config.getCooling() == Cooling.GEOMETRIC ? temperature * config.getCoolingRate()
+                        : Math.max(0, temperature - initial * (1 - config.getCoolingRate()));
+            }
+            return cost == 0;
+        }
+
+        // Standard deviation of the cost over a random walk of WALK moves, all accepted; at least 1
+        private double estimateTemperature() {
+            if (boxes.length == 0) {
+                return 1;
+            }
+            double sum = 0;
+            double squares = 0;
+            for (int i = 0; i < WALK; i++) {
+                int box = boxes[random.nextInt(boxes.length)];
+                int first = random.nextInt(model.mutableCount(box));
+                int second = random.nextInt(model.mutableCount(box) - 1);
+                int cellA = model.mutableCell(box, first);
+                int cellB = model.mutableCell(box, second < first ? second : second + 1);
+                swap(cellA, cellB, delta(cellA, cellB));
+                sum += cost;
+                squares += (double) cost * cost;
+            }
+            moves += WALK;
+            double mean = sum / WALK;
+            return Math.max(1, Math.sqrt(Math.max(0, squares / WALK - mean * mean)));
+        }
+
+        @Override
+        protected String summary() {
+            return String.format("cost %d after %d temperature steps, %d moves, %d reheats", cost, steps, moves, reheats);
+        }
+    }
+
+    // Tabu search engine (--engine=tabu). Every iteration evaluates all swaps within a box that involve at
+    // least one conflicted cell and makes the best one, even if it is worse, unless the pair was swapped
+    // within the last `tenure` iterations; a tabu move is still allowed when it beats the best cost since the
+    // last restart (aspiration). Ties are broken at random. The tabu list is a ring of pair indices with a count per
+    // pair for O(1) lookups. After a number of iterations without a new best the boxes are refilled at
+    // random (a restart).
+    public static final class TabuSearch extends LocalSearch {
+        // Recently swapped pairs as cellA * CELLS + cellB (cellA < cellB), oldest first from `next`
+        private final int[] ring;
+        private int next;
+        // Times every pair occurs in the ring
+        private final int[] tabu = new int[CELLS * CELLS];
+        // The best moves of the current iteration, as pair indices; a box has at most 36 pairs
+        private final int[] candidates = new int[9 * 36];
+        private int restarts;
+
+        public TabuSearch(PuzzleModel model, SolverConfig config, RandomSource random) {
+            super(model, config, random);
+            ring = new int[config.getTabuTenure()];
+            Arrays.fill(ring, -1);
+        }
+
+        // Run the tabu chains of `config` on a compiled puzzle
+        public static SolveResult solve(PuzzleModel model, SolverConfig config) {
+            LocalSearch[] chains = new LocalSearch[config.getChains()];
+            for (int i = 0; i < chains.length; i++) {
+                chains[i] = new TabuSearch(model, config, config.newRandomSource(i));
+            }
+            return race(chains, "tabu");
+        }
+
+        @Override
+        public boolean search(AtomicBoolean stop) {
+            fill();
+            if (boxes.length == 0) {
+                return cost == 0; // No box has two cells to swap, the filling is final
+            }
+            int maxSteps = config.getMaxGenerations();
+            int restart = config.getTabuRestart();
+            // Lowest cost since the last restart, the aspiration level
+            int best = cost;
+            int sinceImproved = 0;
+            while (cost > 0 && !stop.get() && (maxSteps == 0 || steps < maxSteps)) {
+                steps++;
+                if (restart > 0 && sinceImproved >= restart) {
+                    best = restart();
+                    sinceImproved = 0;
+                    continue;
+                }
+                int bestDelta = Integer.MAX_VALUE;
+                int ties = 0;
+                for (int box : boxes) {
+                    int count = model.mutableCount(box);
+                    // Bit i set if the box's mutable cell i is conflicted; pairs of two clean cells are skipped
+                    int conflicted = 0;
+                    for (int i = 0; i < count; i++) {
+                        conflicted |= isConflicted(model.mutableCell(box, i)) ? 1 << i : 0;
+                    }
+                    int all = (1 << count) - 1;
+                    for (int i = 0; i < count - 1; i++) {
+                        int cellA = model.mutableCell(box, i);
+                        // Later cells forming a pair with cell i: all of them if it is conflicted, else the conflicted ones
+                        int partners = ((conflicted & (1 << i)) != 0 ? all : conflicted) & (-2 << i);
+                        for (; partners != 0; partners &= partners - 1) {
+                            int cellB = model.mutableCell(box, Integer.numberOfTrailingZeros(partners));
+                            int delta = delta(cellA, cellB);
+                            moves++;
+                            if (delta > bestDelta || (tabu[cellA * CELLS + cellB] != 0 && cost + delta >= best)) {
+                                continue;
+                            }
+                            if (delta < bestDelta) {
+                                bestDelta = delta;
+                                ties = 0;
+                            }
+                            candidates[ties++] = cellA * CELLS + cellB;
+                        }
+                    }
+                }
+                if (ties == 0) {
+                    best = restart(); // Every move is tabu
+                    sinceImproved = 0;
+                    continue;
+                }
+                // One of the equally good moves at random
+                int pair = candidates[ties == 1 ? 0 : random.nextInt(ties)];
+                swap(pair / CELLS, pair % CELLS, bestDelta);
+                if (ring[next] >= 0) {
+                    tabu[ring[next]]--;
+                }
+                ring[next] = pair;
+                tabu[pair]++;
+                next = next + 1 == ring.length ? 0 : next + 1;
+                if (cost < best) {
+                    best = cost;
+                    sinceImproved = 0;
+                } else {
+                    sinceImproved++;
+                }
+            }
+            return cost == 0;
+        }
+
+        // Start over from a new random filling with an empty tabu list; returns the new cost
+        private int restart() {
+            fill();
+            Arrays.fill(ring, -1);
+            Arrays.fill(tabu, 0);
+            restarts++;
+            return cost;
+        }
+
+        @Override
+        protected String summary() {
+            return String.format("cost %d after %d iterations, %d moves evaluated, %d restarts", cost, steps, moves, restarts);
+        }
+    }
+
+    // Immutable settings of a solve, created with SolverConfig.builder(). The population size, tournament
+    // size and mutation rate are chosen by the difficulty of the puzzle unless given (see forPuzzle), and
+    // build() rejects the combinations the engines do not support.
+    public static final class SolverConfig {
+        public enum Engine {
+            GENETIC,   // The genetic algorithm, in whichever mode the other settings select
+            EXACT,     // ExactSolver; the genetic settings are ignored
+            ANNEALING, // Annealer chains; a generation is one temperature step
+            TABU       // TabuSearch chains; a generation is one iteration
+        }
+
+        public static final int MIGRATION_INTERVAL = 10;
+        public static final int MIGRANTS = 8;
+        public static final int MEMETIC_BUDGET = 50;
+        public static final double COOLING_RATE = 0.99;
+        public static final int REHEAT = 50;
+        public static final int TABU_TENURE = 5;
+        public static final int TABU_RESTART = 1000;
+        public static final SolverConfig DEFAULT = builder().build();
+
+        private final int populationSize; // 0 chooses by difficulty
+        private final int tournamentSize; // 0 chooses by difficulty
+        private final double mutationRate; // NaN chooses by difficulty
+        private final Mutation mutation;
+        private final double memeticRate; // 0 for no memetic step
+        private final int memeticBudget;
+        private final boolean offHeap;
+        private final boolean sharedBoxes;
+        private final int fitnessCacheEntries; // 0 disables the fitness cache
+        private final int threads;
+        private final boolean pipeline;
+        private final boolean stats;
+        private final boolean steadyState;
+        private final boolean propagation;
+        private final Engine engine;
+        private final Annealer.Cooling cooling;
+        private final double coolingRate;
+        private final double temperature; // NaN estimates the initial temperature from the puzzle
+        private final int reheat; // 0 never reheats
+        private final int tabuTenure;
+        private final int tabuRestart; // 0 never restarts
+        private final int chains;
+        private final int maxGenerations; // 0 for no limit
+        private final RandomSource.Kind randomSource;
+        private final long seed;
+        private final boolean seeded; // False draws the seed from the system's entropy
+        private final int islands;
+        private final Archipelago.Topology topology;
+        private final int migrationInterval;
+        private final int migrants;
+        private final Portfolio.Member[] portfolio; // null when not racing, empty for the default portfolio
+
+        private SolverConfig(Builder builder) {
+            populationSize = builder.populationSize;
+            tournamentSize = builder.tournamentSize;
+            mutationRate = builder.mutationRate;
+            mutation = builder.mutation;
+            memeticRate = builder.memeticRate;
+            memeticBudget = builder.memeticBudget;
+            offHeap = builder.offHeap;
+            sharedBoxes = builder.sharedBoxes;
+            fitnessCacheEntries = builder.fitnessCacheEntries;
+            threads = builder.threads;
+            pipeline = builder.pipeline;
+            stats = builder.stats;
+            steadyState = builder.steadyState;
+            propagation = builder.propagation;
+            engine = builder.engine;
+            cooling = builder.cooling;
+            coolingRate = builder.coolingRate;
+            temperature = builder.temperature;
+            reheat = builder.reheat;
+            tabuTenure = builder.tabuTenure;
+            tabuRestart = builder.tabuRestart;
+            chains = builder.chains;
+            maxGenerations = builder.maxGenerations;
+            randomSource = builder.randomSource;
+            seed = builder.seed;
+            seeded = builder.seeded;
+            islands = builder.islands;
+            topology = builder.topology;
+            migrationInterval = builder.migrationInterval;
+            migrants = builder.migrants;
+            portfolio = builder.portfolio == null ? null : builder.portfolio.clone();
+        }
+
+        public static Builder builder() {
+            return new Builder();
+        }
+
+        public Builder toBuilder() {
+            Builder builder = new Builder()
+                    .populationSize(populationSize)
+                    .tournamentSize(tournamentSize)
+                    .mutationRate(mutationRate)
+                    .mutation(mutation)
+                    .memeticRate(memeticRate)
+                    .memeticBudget(memeticBudget)
+                    .offHeap(offHeap)
+                    .sharedBoxes(sharedBoxes)
+                    .fitnessCacheEntries(fitnessCacheEntries)
+                    .threads(threads)
+                    .pipeline(pipeline)
+                    .stats(stats)
+                    .steadyState(steadyState)
+                    .propagation(propagation)
+                    .engine(engine)
+                    .cooling(cooling)
+                    .coolingRate(coolingRate)
+                    .temperature(temperature)
+                    .reheat(reheat)
+                    .tabuTenure(tabuTenure)
+                    .tabuRestart(tabuRestart)
+                    .chains(chains)
+                    .maxGenerations(maxGenerations)
+                    .islands(islands)
+                    .topology(topology)
+                    .migrationInterval(migrationInterval)
+                    .migrants(migrants)
+                    .portfolio(portfolio)
+                    .randomSource(randomSource);
+            builder.seed = seed;
+            builder.seeded = seeded;
+            return builder;
+        }
+
+        // These settings with the values left to the difficulty filled in for a puzzle with the given number
+        // of empty cells
+        public SolverConfig forPuzzle(int mutableCells) {
+            int size = 100000;
+            int tournament = 8;
+            double rate = 0.34;
+            if (mutableCells >= HARDTHRESHOLD) { // Ultra-hard sudoku; easy and hard ones share the setting
+                size = 500000;
+                tournament = 3;
+                rate = 0.15;
+            }
+            return toBuilder()
+                    .populationSize(populationSize == 0 ? size : populationSize)
+                    .tournamentSize(tournamentSize == 0 ? tournament : tournamentSize)
+                    .mutationRate(Double.isNaN(mutationRate) ? rate : mutationRate)
+                    .build();
+        }
+
+        public int getPopulationSize() {
+            return populationSize;
+        }
+
+        public int getTournamentSize() {
+            return tournamentSize;
+        }
+
+        public double getMutationRate() {
+            return mutationRate;
+        }
+
+        public Mutation getMutation() {
+            return mutation;
+        }
+
+        public double getMemeticRate() {
+            return memeticRate;
+        }
+
+        public int getMemeticBudget() {
+            return memeticBudget;
+        }
+
+        public boolean isOffHeap() {
+            return offHeap;
+        }
+
+        public boolean isSharedBoxes() {
+            return sharedBoxes;
+        }
+
+        public int getFitnessCacheEntries() {
+            return fitnessCacheEntries;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public boolean isPipeline() {
+            return pipeline;
+        }
+
+        public boolean isStats() {
+            return stats;
+        }
+
+        public boolean isSteadyState() {
+            return steadyState;
+        }
+
+        public boolean isPropagation() {
+            return propagation;
+        }
+
+        public Engine getEngine() {
+            return engine;
+        }
+
+        public Annealer.Cooling getCooling() {
+            return cooling;
+        }
+
+        public double getCoolingRate() {
+            return coolingRate;
+        }
+
+        public double getTemperature() {
+            return temperature;
+        }
+
+        public int getReheat() {
+            return reheat;
+        }
+
+        public int getTabuTenure() {
+            return tabuTenure;
+        }
+
+        public int getTabuRestart() {
+            return tabuRestart;
+        }
+
+        public int getChains() {
+            return chains;
+        }
+
+        public int getMaxGenerations() {
+            return maxGenerations;
+        }
+
+        public RandomSource.Kind getRandomSource() {
+            return randomSource;
+        }
+
+        // Generator for stream `stream` of a run. A seeded configuration gives the same streams every time,
+        // which makes single-threaded and fork/join runs repeatable (islands, portfolios, steady-state
+        // workers and the pipeline still interleave by timing).
+        public RandomSource newRandomSource(int stream) {
+            long base = seeded ? seed : new SplittableRandom().nextLong();
+            return RandomSource.create(randomSource, base + stream * 0x9E3779B97F4A7C15L);
+        }
+
+        public int getIslands() {
+            return islands;
+        }
+
+        public Archipelago.Topology getTopology() {
+            return topology;
+        }
+
+        public int getMigrationInterval() {
+            return migrationInterval;
+        }
+
+        public int getMigrants() {
+            return migrants;
+        }
+
+        public Portfolio.Member[] getPortfolio() {
+            return portfolio == null ? null : portfolio.clone();
+        }
+
+        public static final class Builder {
+            private int populationSize;
+            private int tournamentSize;
+            private double mutationRate = Double.NaN;
+            private Mutation mutation = Mutation.BOX_SWAP;
+            private double memeticRate;
+            private int memeticBudget = MEMETIC_BUDGET;
+            private boolean offHeap;
+            private boolean sharedBoxes;
+            private int fitnessCacheEntries;
+            private int threads = 1;
+            private boolean pipeline;
+            private boolean stats;
+            private boolean steadyState;
+            private boolean propagation = true;
+            private Engine engine = Engine.GENETIC;
+            private Annealer.Cooling cooling = Annealer.Cooling.GEOMETRIC;
+            private double coolingRate = COOLING_RATE;
+            private double temperature = Double.NaN;
+            private int reheat = REHEAT;
+            private int tabuTenure = TABU_TENURE;
+            private int tabuRestart = TABU_RESTART;
+            private int chains = 1;
+            private int maxGenerations;
+            private RandomSource.Kind randomSource = RandomSource.Kind.XOSHIRO;
+            private long seed;
+            private boolean seeded;
+            private int islands = 1;
+            private Archipelago.Topology topology = Archipelago.Topology.RING;
+            private int migrationInterval = MIGRATION_INTERVAL;
+            private int migrants = MIGRANTS;
+            private Portfolio.Member[] portfolio;
+
+            private Builder() {
+            }
+
+            public Builder populationSize(int populationSize) {
+                this.populationSize = populationSize;
+                return this;
+            }
+
+            public Builder tournamentSize(int tournamentSize) {
+                this.tournamentSize = tournamentSize;
+                return this;
+            }
+
+            public Builder mutationRate(double mutationRate) {
+                this.mutationRate = mutationRate;
+                return this;
+            }
+
+            public Builder mutation(Mutation mutation) {
+                this.mutation = mutation;
+                return this;
+            }
+
+            // Probability that a child is hill-climbed after mutation (see HillClimber), 0 for none
+            public Builder memeticRate(double memeticRate) {
+                this.memeticRate = memeticRate;
+                return this;
+            }
+
+            // Swaps a hill climb tries before it gives up
+            public Builder memeticBudget(int memeticBudget) {
+                this.memeticBudget = memeticBudget;
+                return this;
+            }
+
+            public Builder offHeap(boolean offHeap) {
+                this.offHeap = offHeap;
+                return this;
+            }
+
+            public Builder sharedBoxes(boolean sharedBoxes) {
+                this.sharedBoxes = sharedBoxes;
+                return this;
+            }
+
+            public Builder fitnessCacheEntries(int fitnessCacheEntries) {
+                this.fitnessCacheEntries = fitnessCacheEntries;
+                return this;
+            }
+
+            public Builder threads(int threads) {
+                this.threads = threads;
+                return this;
+            }
+
+            public Builder pipeline(boolean pipeline) {
+                this.pipeline = pipeline;
+                return this;
+            }
+
+            public Builder stats(boolean stats) {
+                this.stats = stats;
+                return this;
+            }
+
+            public Builder steadyState(boolean steadyState) {
+                this.steadyState = steadyState;
+                return this;
+            }
+
+            // Fill the cells the givens force before evolving (on unless turned off)
+            public Builder propagation(boolean propagation) {
+                this.propagation = propagation;
+                return this;
+            }
+
+            public Builder engine(Engine engine) {
+                this.engine = engine;
+                return this;
+            }
+
+            public Builder cooling(Annealer.Cooling cooling) {
+                this.cooling = cooling;
+                return this;
+            }
+
+            // Factor (geometric) or share of the initial temperature (linear) kept per temperature step
+            public Builder coolingRate(double coolingRate) {
+                this.coolingRate = coolingRate;
+                return this;
+            }
+
+            // Initial annealing temperature, NaN to estimate it from a random walk
+            public Builder temperature(double temperature) {
+                this.temperature = temperature;
+                return this;
+            }
+
+            // Reset the temperature after this many temperature steps without a new best cost, 0 for never
+            public Builder reheat(int reheat) {
+                this.reheat = reheat;
+                return this;
+            }
+
+            // Iterations a swapped pair of cells stays tabu
+            public Builder tabuTenure(int tabuTenure) {
+                this.tabuTenure = tabuTenure;
+                return this;
+            }
+
+            // Refill the boxes after this many tabu iterations without a new best cost, 0 for never
+            public Builder tabuRestart(int tabuRestart) {
+                this.tabuRestart = tabuRestart;
+                return this;
+            }
+
+            // Independent annealing or tabu chains, one thread each
+            public Builder chains(int chains) {
+                this.chains = chains;
+                return this;
+            }
+
+            // Give up once a solver evolved this many generations without a solution, 0 for no limit
+            public Builder maxGenerations(int maxGenerations) {
+                this.maxGenerations = maxGenerations;
+                return this;
+            }
+
+            public Builder randomSource(RandomSource.Kind randomSource) {
+                this.randomSource = randomSource;
+                return this;
+            }
+
+            public Builder seed(long seed) {
+                this.seed = seed;
+                this.seeded = true;
+                return this;
+            }
+
+            public Builder islands(int islands) {
+                this.islands = islands;
+                return this;
+            }
+
+            public Builder topology(Archipelago.Topology topology) {
+                this.topology = topology;
+                return this;
+            }
+
+            public Builder migrationInterval(int migrationInterval) {
+                this.migrationInterval = migrationInterval;
+                return this;
+            }
+
+            public Builder migrants(int migrants) {
+                this.migrants = migrants;
+                return this;
+            }
+
+            // Race these members, the default portfolio if empty, or evolve normally if null
+            public Builder portfolio(Portfolio.Member[] portfolio) {
+                this.portfolio = portfolio;
+                return this;
+            }
+
+            public SolverConfig build() {
+                if (populationSize < 0 || tournamentSize < 0 || fitnessCacheEntries < 0 || migrants < 0 || maxGenerations < 0 || reheat < 0 || tabuRestart < 0
+                        || threads < 1 || islands < 1 || migrationInterval < 1 || memeticBudget < 1 || chains < 1 || tabuTenure < 1) {
+                    throw new IllegalArgumentException("Sizes and counts cannot be negative; threads, islands, chains, the migration interval, the memetic budget and the tabu tenure start at 1");
+                }
+                if (populationSize > PopulationStore.MAX_SIZE) {
+                    throw new IllegalArgumentException("The population (" + populationSize + ") cannot be larger than " + PopulationStore.MAX_SIZE + " chromosomes");
+                }
+                if (populationSize > 0 && tournamentSize > populationSize) {
+                    throw new IllegalArgumentException("The tournament (" + tournamentSize + ") cannot be larger than the population (" + populationSize + ")");
+                }
+                if (!Double.isNaN(mutationRate) && (mutationRate < 0 || mutationRate > 1)) {
+                    throw new IllegalArgumentException("The mutation rate is a probability, got " + mutationRate);
+                }
+                if (!(memeticRate >= 0 && memeticRate <= 1)) {
+                    throw new IllegalArgumentException("The memetic rate is a probability, got " + memeticRate);
+                }
+                if (!(coolingRate > 0 && coolingRate < 1) || !(Double.isNaN(temperature) || temperature > 0)) {
+                    throw new IllegalArgumentException("The cooling rate lies strictly between 0 and 1 and the temperature is positive");
+                }
+                if (mutation == null || topology == null || randomSource == null || engine == null || cooling == null) {
+                    throw new IllegalArgumentException("A mutation operator, a topology, a random source, an engine and a cooling schedule are required");
+                }
+                if (engine != Engine.GENETIC && (portfolio != null || islands > 1 || steadyState)) {
+                    throw new IllegalArgumentException("--engine=" + engine.name().toLowerCase() + " searches alone and cannot be combined with --portfolio, --islands or --steady-state");
+                }
+                if (chains > 1 && engine != Engine.ANNEALING && engine != Engine.TABU) {
+                    throw new IllegalArgumentException("--chains runs local search chains and needs --engine=annealing or --engine=tabu");
+                }
+                if (fitnessCacheEntries > 0 && threads > 1) {
+                    throw new IllegalArgumentException("--fitness-cache is single-threaded and cannot be combined with --threads");
+                }
+                if (pipeline && (threads > 1 || fitnessCacheEntries > 0)) {
+                    throw new IllegalArgumentException("--pipeline runs its own stage threads and cannot be combined with --threads or --fitness-cache");
+                }
+                if (portfolio != null && islands > 1) {
+                    throw new IllegalArgumentException("--portfolio races whole populations and cannot be combined with islands");
+                }
+                if (steadyState && (pipeline || fitnessCacheEntries > 0 || offHeap || sharedBoxes || islands > 1)) {
+                    throw new IllegalArgumentException("--steady-state replaces children in place in the heap arena and cannot be combined with --pipeline, --fitness-cache, --off-heap, --shared-boxes or --islands");
+                }
+                if (islands > 1 && threads > 1) {
+                    throw new IllegalArgumentException("Islands run one thread each, --islands cannot be combined with --threads");
+                }
+                return new SolverConfig(this);
+            }
+        }
+    }
+
+    // Outcome of SudokuSolver.solve(): the solved grid (null if the run stopped without one), the generations
+    // of the solver that found it, the chromosomes scored by all solvers of the run (digits placed for the
+    // exact engine), the wall time and, for islands and portfolios, the island or member that won
+    public static final class SolveResult {
+        private final byte[] solution;
+        private final int generations;
+        private final long evaluations;
+        private final long elapsedNanos;
+        private final String winner;
+        private final int propagated;
+
+        SolveResult(byte[] solution, int generations, long evaluations, long elapsedNanos, String winner) {
+            this(solution, generations, evaluations, elapsedNanos, winner, 0);
+        }
+
+        SolveResult(byte[] solution, int generations, long evaluations, long elapsedNanos, String winner, int propagated) {
+            this.solution = solution;
+            this.generations = generations;
+            this.evaluations = evaluations;
+            this.elapsedNanos = elapsedNanos;
+            this.winner = winner;
+            this.propagated = propagated;
+        }
+
+        // This result preceded by a propagation stage that filled `cells` cells in `nanos`
+        SolveResult afterPropagation(int cells, long nanos) {
+            return new SolveResult(solution, generations, evaluations, elapsedNanos + nanos, winner, cells);
+        }
+
+        public boolean isSolved() {
+            return solution != null;
+        }
+
+        // The solved grid, 81 cells stored row by row
+        public byte[] getSolution() {
+            return solution == null ? null : solution.clone();
+        }
+
+        public int getGenerations() {
+            return generations;
+        }
+
+        public long getEvaluations() {
+            return evaluations;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getSeconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        public String getWinner() {
+            return winner;
+        }
+
+        // Empty cells filled by constraint propagation before evolution
+        public int getPropagated() {
+            return propagated;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s after %.2f s, %d cells propagated, %d generations, %d evaluations%s",
+                    isSolved() ? "Solved" : "Stopped", getSeconds(), propagated, generations, evaluations,
+                    winner == null ? "" : " (" + winner + ")");
+        }
+    }
+
+    // True if two givens of the grid share a digit and a row, column or box. Every engine assumes they do
+    // not: the box-based ones could not even fill such a box with its missing digits.
+    static boolean repeatsGiven(byte[] grid) {
+        int[] rows = new int[9];
+        int[] columns = new int[9];
+        int[] boxes = new int[9];
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (grid[cell] == 0) {
+                continue;
+            }
+            int bit = 1 << grid[cell];
+            int row = PuzzleModel.ROW[cell], column = PuzzleModel.COLUMN[cell], box = PuzzleModel.BOX[cell];
+            if (((rows[row] | columns[column] | boxes[box]) & bit) != 0) {
+                return true;
+            }
+            rows[row] |= bit;
+            columns[column] |= bit;
+            boxes[box] |= bit;
+        }
+        return false;
+    }
+
+    // Embeddable entry point that solves grids with one configuration. It holds no mutable state, and every
+    // call builds its own model, solvers and threads, so one instance can be shared by any number of
+    // threads solving different puzzles at once.
+    public static final class SudokuSolver {
+        private final SolverConfig config;
+
+        public SudokuSolver(SolverConfig config) {
+            this.config = config;
+        }
+
+        // Throws IllegalArgumentException unless the grid has 81 cells of 0 (empty) to 9 and no given repeats
+        // a digit in its row, column or box
+        static void validate(byte[] grid) {
+            if (grid.length != CELLS) {
+                throw new IllegalArgumentException("A grid has " + CELLS + " cells, got " + grid.length);
+            }
+            for (byte value : grid) {
+                if (value < 0 || value > 9) {
+                    throw new IllegalArgumentException("Cells hold 0 (empty) to 9, got " + value);
+                }
+            }
+            if (repeatsGiven(grid)) {
+                throw new IllegalArgumentException("A given repeats in its row, column or box, the puzzle has no solution");
+            }
+        }
+
+        // Fill the forced cells of a validated grid, or return null when the configuration does not propagate.
+        // The exact engine does without: choosing the most constrained cell first already fills forced cells
+        // at no cost. Throws IllegalArgumentException if the givens contradict each other.
+        static Propagator propagate(byte[] grid, SolverConfig config) {
+            if (!config.isPropagation() || config.getEngine() == SolverConfig.Engine.EXACT) {
+                return null;
+            }
+            Propagator propagator = Propagator.run(grid);
+            if (propagator.isContradiction()) {
+                throw new IllegalArgumentException("The givens contradict each other, the puzzle has no solution");
+            }
+            return propagator;
+        }
+
+        // Solve a grid of 81 cells stored row by row, 0 marking an empty cell; the grid is not modified.
+        // Throws IllegalArgumentException for a malformed grid or givens that contradict each other.
+        public SolveResult solve(byte[] grid) {
+            validate(grid);
+            // Fill the forced cells first; the rest, if any, is left to the search
+            long start = System.nanoTime();
+            byte[] puzzle = grid.clone();
+            int propagated = 0;
+            Propagator propagator = propagate(puzzle, config);
+            if (propagator != null) {
+                puzzle = propagator.getGrid();
+                propagated = propagator.getFixed();
+                if (propagator.isSolved()) {
+                    return new SolveResult(puzzle, 0, 0, System.nanoTime() - start, null, propagated);
+                }
+            }
+            long propagation = System.nanoTime() - start;
+
+            if (config.getEngine() == SolverConfig.Engine.EXACT) {
+                start = System.nanoTime();
+                ExactSolver exact = new ExactSolver();
+                byte[] solution = exact.solve(puzzle) ? exact.getGrid() : null;
+                return new SolveResult(solution, 0, exact.getNodes(), System.nanoTime() - start, "exact")
+                        .afterPropagation(propagated, propagation);
+            }
+            PuzzleModel model = PuzzleModel.compile(puzzle);
+            SolverConfig settings = config.forPuzzle(model.mutableCount());
+            SolveResult result;
+            if (settings.getEngine() == SolverConfig.Engine.ANNEALING) {
+                result = Annealer.solve(model, settings);
+            } else if (settings.getEngine() == SolverConfig.Engine.TABU) {
+                result = TabuSearch.solve(model, settings);
+            } else if (settings.getPortfolio() != null) {
+                result = new Portfolio(settings).race(model);
+            } else if (settings.getIslands() > 1) {
+                result = new IslandModel(settings.getIslands(), settings.getTopology(), settings.getMigrationInterval(),
+                        settings.getMigrants()).solve(model, settings);
+            } else {
+                start = System.nanoTime();
+                Main solver = new Main(settings);
+                Chromosome found = solver.evolve(model, settings.getPopulationSize());
+                result = new SolveResult(found == null ? null : found.getGenome(), solver.generations,
+                        solver.evaluations.sum(), System.nanoTime() - start, null);
+            }
+            return result.afterPropagation(propagated, propagation);
+        }
+    }
+
+    // Races several solver configurations on their own threads. Every member evolves its own population with
+    // its own population size, tournament size, mutation rate and mutation operator; the first to reach
+    // fitness 0 wins, raises the shared cancellation flag, and the others return at their next generation.
+    // Winners can be appended to a log, whose tally shows which members never win and can be dropped.
+    public static final class Portfolio {
+        // One configuration of the race, written population:tournament:rate:box|cell
+        public static final class Member {
+            final int populationSize;
+            final int tournamentSize;
+            final double mutationRate;
+            final Mutation mutation;
+
+            // Throws IllegalArgumentException unless the population holds at least one chromosome, the
+            // tournament 1 up to the population, and the settings pass SolverConfig's checks
+            public Member(int populationSize, int tournamentSize, double mutationRate, Mutation mutation) {
+                if (populationSize < 1 || tournamentSize < 1 || Double.isNaN(mutationRate)) {
+                    throw new IllegalArgumentException("Portfolio members need a population and a tournament of at least 1 and a mutation rate");
+                }
+                SolverConfig.builder()
+                        .populationSize(populationSize)
+                        .tournamentSize(tournamentSize)
+                        .mutationRate(mutationRate)
+                        .mutation(mutation)
+                        .build();
+                this.populationSize = populationSize;
+                this.tournamentSize = tournamentSize;
+                this.mutationRate = mutationRate;
+                this.mutation = mutation;
+            }
+
+            public static Member parse(String spec) {
+                String[] fields = spec.split(":");
+                if (fields.length != 4 || !(fields[3].equals("box") || fields[3].equals("cell"))) {
+                    throw new IllegalArgumentException("Portfolio member is not population:tournament:rate:box|cell: " + spec);
+                }
+                return new Member(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]), Double.parseDouble(fields[2]),
+                        fields[3].equals("box") ? Mutation.BOX_SWAP : Mutation.CELL_SWAP);
+            }
+
+            @Override
+            public String toString() {
+                return populationSize + ":" + tournamentSize + ":" + mutationRate + ":"
+                        + (mutation == Mutation.BOX_SWAP ? "box" : "cell");
+            }
+        }
+
+        private final Member[] members;
+        private final SolverConfig config;
+
+        // Race the members of `config`, the default ones if it names none; its puzzle-dependent settings
+        // must already be chosen
+        public Portfolio(SolverConfig config) {
+            Member[] given = config.getPortfolio();
+            this.members = given == null || given.length == 0 ? defaultMembers(config) : given;
+            this.config = config;
+        }
+
+        // Members separated by commas, none (the default portfolio) for an empty string
+        public static Member[] parse(String specs) {
+            if (specs.isEmpty()) {
+                return new Member[0];
+            }
+            String[] parts = specs.split(",");
+            Member[] members = new Member[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                members[i] = Member.parse(parts[i]);
+            }
+            return members;
+        }
+
+        // The difficulty setting chosen for the puzzle, the same population with the cell-swap operator, the
+        // ultra-hard setting of statistical/demo, and a small population with cell swaps like best/ uses
+        public static Member[] defaultMembers(SolverConfig config) {
+            return new Member[]{
+                    new Member(config.getPopulationSize(), config.getTournamentSize(), config.getMutationRate(), Mutation.BOX_SWAP),
+                    new Member(config.getPopulationSize(), config.getTournamentSize(), config.getMutationRate(), Mutation.CELL_SWAP),
+                    new Member(500000, 3, 0.1, Mutation.BOX_SWAP),
+                    new Member(20000, 4, 0.05, Mutation.CELL_SWAP)
+            };
+        }
+
+        // Run every member until one solves the puzzle; the result names the winning member and has no
+        // solution if all of them failed. A member that throws stops the others, and race rethrows its
+        // exception.
+        public SolveResult race(PuzzleModel model) {
+            AtomicBoolean cancelled = new AtomicBoolean();
+            AtomicReference<Main> winner = new AtomicReference<>();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread[] threads = new Thread[members.length];
+            Main[] solvers = new Main[members.length];
+            Chromosome[] solutions = new Chromosome[members.length];
+            long[] elapsed = new long[1];
+            long start = System.nanoTime();
+            for (int i = 0; i < members.length; i++) {
+                Member member = members[i];
+                Main solver = new Main(config.toBuilder()
+                        .populationSize(member.populationSize)
+                        .tournamentSize(member.tournamentSize)
+                        .mutationRate(member.mutationRate)
+                        .mutation(member.mutation)
+                        .portfolio(null)
+                        .build(), i);
+                solver.cancelled = cancelled;
+                solver.label = "Member " + member;
+                solvers[i] = solver;
+                int index = i;
+                threads[i] = new Thread(() -> {
+                    try {
+                        Chromosome found = solver.evolve(model, member.populationSize);
+                        if (found != null && winner.compareAndSet(null, solver)) {
+                            solutions[index] = found;
+                            elapsed[0] = System.nanoTime() - start;
+                            cancelled.set(true);
+                        }
+                    } catch (RuntimeException | Error e) {
+                        failure.compareAndSet(null, e);
+                        cancelled.set(true);
+                    }
+                }, "portfolio-" + i);
+                threads[i].start();
+            }
+            boolean interrupted = false;
+            for (Thread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    cancelled.set(true);
+                    interrupted = true;
+                    break;
+                }
+            }
+            long evaluations = 0;
+            for (Main solver : solvers) {
+                evaluations += solver.evaluations.sum();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            } else {
+                if (failure.get() != null) {
+                    throw new IllegalStateException("A portfolio member failed", failure.get());
+                }
+                for (int i = 0; i < members.length; i++) {
+                    if (solutions[i] != null) {
+                        return new SolveResult(solutions[i].getGenome(), solvers[i].generations, evaluations,
+                                elapsed[0], members[i].toString());
+                    }
+                }
+            }
+            return new SolveResult(null, 0, evaluations, System.nanoTime() - start, null);
+        }
+
+        // Append "time, empty cells, winner, seconds, generations" of a won race as one tab-separated line
+        public static void record(Path log, PuzzleModel model, SolveResult result) throws IOException {
+            String line = String.format("%s\t%d\t%s\t%.3f\t%d%n", Instant.now(), model.mutableCount(),
+                    result.getWinner(), result.getSeconds(), result.getGenerations());
+            Files.writeString(log, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        // Number of wins of every member recorded in a log
+        public static Map<String, Integer> tally(Path log) throws IOException {
+            Map<String, Integer> wins = new TreeMap<>();
+            for (String line : Files.readAllLines(log)) {
+                String[] fields = line.split("\t");
+                if (fields.length >= 3) {
+                    wins.merge(fields[2], 1, Integer::sum);
+                }
+            }
+            return wins;
+        }
+    }
+
+    // Islands evolving separately that exchange their best chromosomes. Every M generations an island sends
+    // copies of its best chromosomes to its neighbours in the topology and replaces its worst ones with
+    // whatever migrants arrived; subclasses decide how batches travel and how a solution is announced.
+    public abstract static class Archipelago {
+        public enum Topology {
+            RING,   // Island i sends to island i + 1
+            RANDOM, // Island i sends to a different random island every time
+            FULL    // Island i sends to all other islands
+        }
+
+        protected final int count;
+        private final Topology topology;
+        private final int migrationInterval;
+        protected final int migrants;
+
+        protected Archipelago(int count, Topology topology, int migrationInterval, int migrants) {
+            this.count = count;
+            this.topology = topology;
+            this.migrationInterval = Math.max(1, migrationInterval);
+            this.migrants = migrants;
+        }
+
+        public int getMigrationInterval() {
+            return migrationInterval;
+        }
+
+        // True once some island solved the puzzle (or failed); islands then stop at their next generation
+        public abstract boolean isSolved();
+
+        // Deliver a batch of migrant genomes from one island to another
+        protected abstract void send(int sender, int receiver, byte[][] emigrants);
+
+        // Take the migrants `sender` delivered to `receiver` since the last call, null when there are none
+        protected abstract byte[][] receive(int receiver, int sender);
+
+        // Send the best chromosomes of an island and take in the migrants waiting for it; returns the
+        // statistics of the island's population after the exchange
+        GenerationStats migrate(Main island, GenerationStats stats) {
+            int id = island.islandId;
+            PopulationStore population = island.population;
+            int[] best = island.selectSlots(stats, migrants, true);
+            byte[][] emigrants = new byte[best.length][CELLS];
+            for (int i = 0; i < best.length; i++) {
+                population.readGenome(best[i], emigrants[i]);
+            }
+            switch (topology) {
+                case RING:
+                    send(id, (id + 1) % count, emigrants);
+                    break;
+                case RANDOM:
+                    send(id, (id + 1 + island.random.nextInt(count - 1)) % count, emigrants);
+                    break;
+                case FULL:
+                    for (int target = 0; target < count; target++) {
+                        if (target != id) {
+                            send(id, target, emigrants);
+                        }
+                    }
+                    break;
+            }
+
+            // Immigrants overwrite the worst chromosomes and are scored by the next summary pass
+            int[] worst = null;
+            int replaced = 0;
+            for (int sender = 0; sender < count; sender++) {
+                byte[][] immigrants = sender == id ? null : receive(id, sender);
+                if (immigrants == null) {
+                    continue;
+                }
+                if (worst == null) {
+                    worst = island.selectSlots(stats, migrants * (count - 1), false);
+                }
+                for (byte[] genome : immigrants) {
+                    if (replaced < worst.length) {
+                        island.replaceChromosome(worst[replaced++], genome);
+                    }
+                }
+            }
+            return replaced == 0 ? stats : island.summarizePopulation();
+        }
+    }
+
+    // K islands in this process, each a solver with its own population and generators, evolving on their
+    // own threads. Mailboxes are lock-free: island i reads the batch from island j in entry i * K + j of an
+    // AtomicReferenceArray; a sender overwrites a batch its receiver has not collected yet, and the
+    // receiver takes it with getAndSet(null). The first island to reach fitness 0 publishes its solution.
+    public static final class IslandModel extends Archipelago {
+        private final AtomicReferenceArray<byte[][]> mailboxes;
+        private final AtomicReference<Chromosome> solution = new AtomicReference<>();
+        // Island that found the solution, written after it, -1 until then
+        private volatile int winner = -1;
+        // Set once an island found a solution or failed; every island stops at its next generation
+        private volatile boolean stopped;
+
+        public IslandModel(int count, Topology topology, int migrationInterval, int migrants) {
+            super(count, topology, migrationInterval, migrants);
+            mailboxes = new AtomicReferenceArray<>(count * count);
+        }
+
+        @Override
+        public boolean isSolved() {
+            return stopped;
+        }
+
+        // Evolve `count` islands with the settings of `config`, sharing its population size, and return the
+        // first solution found, none if an island failed first; the result names the winning island
+        public SolveResult solve(PuzzleModel model, SolverConfig config) {
+            Thread[] threads = new Thread[count];
+            Main[] islands = new Main[count];
+            int populationSize = config.getPopulationSize();
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                Main island = new Main(config, i);
+                island.islands = this;
+                island.islandId = i;
+                island.label = "Island " + i;
+                islands[i] = island;
+                int index = i;
+                int size = populationSize / count + (i < populationSize % count ? 1 : 0);
+                threads[i] = new Thread(() -> {
+                    try {
+                        Chromosome found = island.evolve(model, size);
+                        if (found != null && solution.compareAndSet(null, found)) {
+                            winner = index;
+                        }
+                    } finally {
+                        // A failing island stops the others too rather than leave them running without it
+                        stopped = true;
+                    }
+                }, "island-" + i);
+                threads[i].start();
+            }
+            for (Thread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            long evaluations = 0;
+            for (Main island : islands) {
+                evaluations += island.evaluations.sum();
+            }
+            int won = winner;
+            return won < 0 ? new SolveResult(null, 0, evaluations, elapsed, null)
+                    : new SolveResult(solution.get().getGenome(), islands[won].generations, evaluations, elapsed,
+                            islands[won].label);
+        }
+
+        @Override
+        protected void send(int sender, int receiver, byte[][] emigrants) {
+            mailboxes.set(receiver * count + sender, emigrants);
+        }
+
+        @Override
+        protected byte[][] receive(int receiver, int sender) {
+            return mailboxes.getAndSet(receiver * count + sender, null);
+        }
+    }
+
+    // Islands in separate processes on one host, cooperating through a memory-mapped file instead of sockets.
+    // Every process runs one island (see --worker) and maps the same file, laid out in native byte order as
+    //   header, HEADER bytes: magic, puzzle fingerprint, number of workers, slots per ring, state
+    //     (RUNNING, PUBLISHING, SOLVED) and the 81 cells of the solution;
+    //   one ring per (receiver, sender) pair: a count of genomes written, then SLOT-byte slots each holding
+    //     a sequence word and a genome.
+    // A ring has a single writer that never waits for its reader, so slots are seqlocks: the writer of
+    // genome k makes the sequence 2k + 1 while copying and 2k + 2 once done; a reader keeps a copy only if
+    // the sequence was 2k + 2 both before and after reading it. The first worker to see the fields of the
+    // header at 0 fills them in with a CAS; the others check them. A file can be reused for the same puzzle
+    // (a worker attaching to a solved file just prints the stored solution), so use a new one per puzzle.
+    public static final class SharedFileIslands extends Archipelago {
+        private static final long MAGIC = 0x5355444F4B554741L; // "SUDOKUGA"
+        private static final int HEADER = 128;
+        private static final int FINGERPRINT = 8, WORKER_COUNT = 16, RING_SLOTS = 20, STATE = 24, FINISHED = 28, SOLUTION = 32;
+        private static final int RUNNING = 0, PUBLISHING = 1, SOLVED = 2;
+        private static final int SLOT = 96; // 8-byte sequence + 81 cells, padded to keep sequences aligned
+        private static final int RING_HEADER = 64;
+        private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+        private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+        private final MappedByteBuffer region;
+        private final int slots;
+        private final int ringBytes;
+        // Genomes already read from every sender's ring into this process
+        private final long[] readCounts;
+
+        private SharedFileIslands(MappedByteBuffer region, int workers, int slots, Topology topology,
+                int migrationInterval, int migrants) {
+            super(workers, topology, migrationInterval, migrants);
+            this.region = region;
+            this.slots = slots;
+            this.ringBytes = RING_HEADER + slots * SLOT;
+            this.readCounts = new long[workers];
+        }
+
+        // Map (creating it if needed) the shared file of a run of `workers` processes solving `model`
+        public static SharedFileIslands attach(Path file, int workers, PuzzleModel model, Topology topology,
+                int migrationInterval, int migrants) throws IOException {
+            int slots = Math.max(16, 2 * migrants);
+            long size = HEADER + (long) workers * workers * (RING_HEADER + slots * SLOT);
+            MappedByteBuffer region;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                region = channel.map(FileChannel.MapMode.READ_WRITE, 0, size); // Grows the file with zeros
+            }
+            byte[] givens = new byte[CELLS];
+            model.copyGivens(givens);
+            long fingerprint = FitnessCache.hash(givens, 0) | 1; // Never 0, which marks an unset field
+            claim(region, 0, MAGIC, "not a shared island file");
+            claim(region, FINGERPRINT, fingerprint, "created for a different puzzle");
+            int foundWorkers = (int) INT.compareAndExchange(region, WORKER_COUNT, 0, workers);
+            int foundSlots = (int) INT.compareAndExchange(region, RING_SLOTS, 0, slots);
+            if ((foundWorkers != 0 && foundWorkers != workers) || (foundSlots != 0 && foundSlots != slots)) {
+                throw new IllegalStateException("created for " + foundWorkers + " workers and " + foundSlots
+                        + " ring slots");
+            }
+            return new SharedFileIslands(region, workers, slots, topology, migrationInterval, migrants);
+        }
+
+        // Set a header field from 0 to `expected`, or check that another worker already did
+        private static void claim(MappedByteBuffer region, int offset, long expected, String mismatch) {
+            long found = (long) LONG.compareAndExchange(region, offset, 0L, expected);
+            if (found != 0 && found != expected) {
+                throw new IllegalStateException(mismatch);
+            }
+        }
+
+        @Override
+        public boolean isSolved() {
+            return (int) INT.getAcquire(region, STATE) != RUNNING;
+        }
+
+        // Store a solution unless another worker already did
+        public void publish(byte[] sudoku) {
+            if (INT.compareAndSet(region, STATE, RUNNING, PUBLISHING)) {
+                region.put(SOLUTION, sudoku, 0, CELLS);
+                INT.setRelease(region, STATE, SOLVED);
+            }
+        }
+
+        // Count this worker as done searching, with or without a solution; called once per worker, after
+        // publish() if it found one
+        public void finish() {
+            INT.getAndAdd(region, FINISHED, 1);
+        }
+
+        // Wait until some worker stored its solution and return a copy of it. Returns null once every worker
+        // finished without one, or after `timeoutNanos` for a worker that crashed before finishing.
+        public byte[] awaitSolution(long timeoutNanos) {
+            long deadline = System.nanoTime() + timeoutNanos;
+            while ((int) INT.getAcquire(region, STATE) != SOLVED) {
+                // Workers publish before they finish, so the state is read again after the last one finished
+                if ((int) INT.getAcquire(region, FINISHED) >= count) {
+                    if ((int) INT.getAcquire(region, STATE) == SOLVED) {
+                        break;
+                    }
+                    return null;
+                }
+                if (System.nanoTime() - deadline > 0) {
+                    return null;
+                }
+                LockSupport.parkNanos(1_000_000);
+            }
+            byte[] sudoku = new byte[CELLS];
+            region.get(SOLUTION, sudoku, 0, CELLS);
+            return sudoku;
+        }
+
+        private int ring(int receiver, int sender) {
+            return HEADER + (receiver * count + sender) * ringBytes;
+        }
+
+        @Override
+        protected void send(int sender, int receiver, byte[][] emigrants) {
+            int ring = ring(receiver, sender);
+            long written = (long) LONG.getOpaque(region, ring); // Only this process writes the count
+            for (byte[] genome : emigrants) {
+                int slot = ring + RING_HEADER + (int) (written % slots) * SLOT;
+                LONG.setVolatile(region, slot, 2 * written + 1);
+                VarHandle.storeStoreFence(); // The odd sequence must be visible before any cell changes
+                region.put(slot + 8, genome, 0, CELLS);
+                LONG.setRelease(region, slot, 2 * written + 2);
+                written++;
+            }
+            LONG.setRelease(region, ring, written);
+        }
+
+        @Override
+        protected byte[][] receive(int receiver, int sender) {
+            int ring = ring(receiver, sender);
+            long written = (long) LONG.getAcquire(region, ring);
+            // Genomes older than the last `slots` ones have been overwritten
+            long first = Math.max(readCounts[sender], written - slots);
+            readCounts[sender] = written;
+            if (first >= written) {
+                return null;
+            }
+            byte[][] immigrants = new byte[(int) (written - first)][];
+            int received = 0;
+            for (long k = first; k < written; k++) {
+                int slot = ring + RING_HEADER + (int) (k % slots) * SLOT;
+                byte[] genome = new byte[CELLS];
+                long before = (long) LONG.getAcquire(region, slot);
+                region.get(slot + 8, genome, 0, CELLS);
+                VarHandle.loadLoadFence(); // Read the cells before checking the sequence again
+                long after = (long) LONG.getAcquire(region, slot);
+                if (before == 2 * k + 2 && after == before) {
+                    immigrants[received++] = genome;
+                }
+            }
+            return received == 0 ? null : Arrays.copyOf(immigrants, received);
+        }
+    }
+
+    // Fitness statistics of a population (or of a range of it while reducing). The best slot is the lowest
+    // one with the best fitness, so the result does not depend on how the range was split.
+    public static final class GenerationStats {
+        // Upper bound of the fitness: 2 * 9 units with at most 8 duplicates each
+        public static final int MAX_FITNESS = 144;
+        private final int[] histogram = new int[MAX_FITNESS + 1];
+        private int count;
+        private long sum;
+        private long sumOfSquares;
+        private int bestSlot = -1;
+        private int bestFitness = Integer.MAX_VALUE;
+        private int worstFitness = Integer.MIN_VALUE;
+
+        void add(int slot, int fitness) {
+            count++;
+            sum += fitness;
+            sumOfSquares += (long) fitness * fitness;
+            histogram[fitness]++;
+            if (fitness < bestFitness) {
+                bestFitness = fitness;
+                bestSlot = slot;
+            }
+            worstFitness = Math.max(worstFitness, fitness);
+        }
+
+        // Fold the statistics of a range following this one into this
+        void merge(GenerationStats other) {
+            count += other.count;
+            sum += other.sum;
+            sumOfSquares += other.sumOfSquares;
+            for (int fitness = 0; fitness <= MAX_FITNESS; fitness++) {
+                histogram[fitness] += other.histogram[fitness];
+            }
+            if (other.bestFitness < bestFitness) {
+                bestFitness = other.bestFitness;
+                bestSlot = other.bestSlot;
+            }
+            worstFitness = Math.max(worstFitness, other.worstFitness);
+        }
+
+        public int getBestSlot() {
+            return bestSlot;
+        }
+
+        public int getBestFitness() {
+            return bestFitness;
+        }
+
+        public int getWorstFitness() {
+            return worstFitness;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        public double getVariance() {
+            double mean = getMean();
+            return count == 0 ? 0 : (double) sumOfSquares / count - mean * mean;
+        }
+
+        // Number of chromosomes with the given fitness
+        public int getHistogram(int fitness) {
+            return histogram[fitness];
+        }
+
+        // Best, mean, standard deviation, worst, and the histogram as fitness:count for the non-empty buckets
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("best %d, mean %.2f, sd %.2f, worst %d, histogram",
+                    bestFitness, getMean(), Math.sqrt(getVariance()), worstFitness));
+            for (int fitness = 0; fitness <= MAX_FITNESS; fitness++) {
+                if (histogram[fitness] != 0) {
+                    sb.append(' ').append(fitness).append(':').append(histogram[fitness]);
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    // Slots of the `count` best (or worst) chromosomes of the current population, found with the histogram
+    // of `stats` so a single scan suffices
+    int[] selectSlots(GenerationStats stats, int count, boolean best) {
+        count = Math.min(count, population.size());
+        // Fitness bound such that the chromosomes strictly better (worse) than it are fewer than `count`
+        int bound = best ? 0 : GenerationStats.MAX_FITNESS;
+        int seen = stats.getHistogram(bound);
+        while (seen < count) {
+            bound += best ? 1 : -1;
+            seen += stats.getHistogram(bound);
+        }
+        int[] slots = new int[count];
+        int strictCount = seen - stats.getHistogram(bound);
+        int strict = 0, ties = count - strictCount;
+        for (int slot = 0; slot < population.size() && (strict < strictCount || ties > 0); slot++) {
+            int fitness = population.getFitness(slot);
+            if (fitness == bound) {
+                if (ties > 0) {
+                    slots[count - ties--] = slot;
+                }
+            } else if (best ? fitness < bound : fitness > bound) {
+                slots[strict++] = slot;
+            }
+        }
+        return slots;
+    }
+
+    // Create the population store selected by the configuration
+    private PopulationStore newPopulationStore(int size) {
+        if (config.isSharedBoxes()) {
+            return new BlockPopulationStore(size);
+        }
+        return config.isOffHeap() ? new OffHeapPopulationStore(size) : new PopulationArena(size);
+    }
+
+    // Returns the contestant with the best (lowest) fitness among slots[from, from + count)
+    int tournamentWinner(int[] slots, int from, int count) {
+        int best = slots[from];
+        for (int j = from + 1; j < from + count; j++) {
+            if (population.getFitness(slots[j]) < population.getFitness(best)) {
+                best = slots[j];
+            }
+        }
+        return best;
+    }
+
+    // Builds the child in slot `child` of the next population from two slots of the current population
+    public void crossoverBySubgrids(int parent1, int parent2, int child, RandomSource random) {
+        int selectedSubgrids = recombine(parent1, parent2, child, random);
+
+        if (fitnessCache != null) {
+            // The child's hash is parent1's with the hashes of the replaced boxes exchanged for parent2's
+            long hash = population.getHash(parent1);
+            for (int subgrid = 0; subgrid < 9; subgrid++) {
+                if ((selectedSubgrids & (1 << subgrid)) != 0) {
+                    hash ^= population.boxHash(parent1, subgrid) ^ population.boxHash(parent2, subgrid);
+                }
+            }
+            population.setNextHash(child, hash);
+            // A child equal to one of its parents (same parent picked twice, or the swapped boxes were equal)
+            // simply inherits that parent's scores
+            int clonedParent = hash == population.getHash(parent1) ? parent1
+                    : hash == population.getHash(parent2) ? parent2 : -1;
+            fitnessCache.countChild(clonedParent >= 0);
+            if (clonedParent >= 0) {
+                for (int i = 0; i < PopulationStore.UNIT_SCORES; i++) {
+                    population.setNextUnitScore(child, i, population.getUnitScore(clonedParent, i));
+                }
+                population.setNextFitness(child, population.getFitness(clonedParent));
+                return;
+            }
+        }
+
+        int mixedUnits = inheritUnitScores(parent1, parent2, child, selectedSubgrids);
+        scoreChild(child, mixedUnits & 7, mixedUnits >>> 3);
+    }
+
+    // Copy parent1 into the child and replace 1-5 random boxes with parent2's; returns the set of boxes
+    // taken from parent2 (bit b for box b)
+    int recombine(int parent1, int parent2, int child, RandomSource random) {
+        // Copy the entire Sudoku grid from parent1 to the child
+        population.copyGenomeToNext(parent1, child);
+    
+        // Pick the subgrids to swap from parent2 to child (1-5 of them), kept as a bit set
+        int selectedSubgrids = randomSubgrids(random);
+    
+        // Swap the selected subgrids from parent2 into the child
+        for (int subgrid = 0; subgrid < 9; subgrid++) {
+            if ((selectedSubgrids & (1 << subgrid)) != 0) {
+                population.copyBoxToNext(parent2, child, subgrid);
+            }
+        }
+        return selectedSubgrids;
+    }
+
+    // Bit sets of 9 subgrids by number of bits, SUBGRID_SETS[k] holding every set of k subgrids for k = 1..5
+    private static final int[][] SUBGRID_SETS = new int[6][];
+
+    static {
+        for (int k = 1; k <= 5; k++) {
+            int count = 0;
+            for (int set = 0; set < 1 << 9; set++) {
+                count += Integer.bitCount(set) == k ? 1 : 0;
+            }
+            SUBGRID_SETS[k] = new int[count];
+            count = 0;
+            for (int set = 0; set < 1 << 9; set++) {
+                if (Integer.bitCount(set) == k) {
+                    SUBGRID_SETS[k][count++] = set;
+                }
+            }
+        }
+    }
+
+    // A uniformly random set of 1-5 subgrids, the count itself uniform; two draws instead of drawing
+    // subgrids until enough distinct ones came up
+    static int randomSubgrids(RandomGenerator random) {
+        int[] sets = SUBGRID_SETS[random.nextInt(5) + 1];
+        return sets[random.nextInt(sets.length)];
+    }
+
+    // Row conflicts of a band only depend on its three boxes, column conflicts of a stack likewise.
+    // A band or stack taken entirely from one parent inherits that parent's cached score; returns the
+    // bands (bits 0-2) and stacks (bits 3-5) mixing boxes of both parents, which still need scoring.
+    int inheritUnitScores(int parent1, int parent2, int child, int selectedSubgrids) {
+        int mixedBands = 0;
+        int mixedStacks = 0;
+        for (int k = 0; k < 3; k++) {
+            int bandBoxes = (selectedSubgrids >> (3 * k)) & 7;
+            int stackBoxes = selectedSubgrids & (0b001001001 << k);
+            population.setNextUnitScore(child, k, population.getUnitScore(bandBoxes == 7 ? parent2 : parent1, k));
+            population.setNextUnitScore(child, 3 + k,
+                    population.getUnitScore(stackBoxes == (0b001001001 << k) ? parent2 : parent1, 3 + k));
+            if (bandBoxes != 0 && bandBoxes != 7) {
+                mixedBands |= 1 << k;
+            }
+            if (stackBoxes != 0 && stackBoxes != (0b001001001 << k)) {
+                mixedStacks |= 1 << k;
+            }
+        }
+        return mixedBands | mixedStacks << 3;
+    }
+    
+    // Mutate a child of the next population, hill-climb it when the memetic step picks it, and rescore
+    // whatever either changed
+    void mutateAndClimb(int child, HillClimber climber, RandomSource random) {
+        int units = mutate(child, mutationRate, random) | climb(child, climber, random);
+        if (units != 0) {
+            scoreChild(child, units & 7, units >>> 3);
+        }
+    }
+
+    // A hill climber for one breeding task, stage or worker; null when the memetic step is off
+    HillClimber newHillClimber() {
+        return memeticRate > 0 ? new HillClimber(model, memeticBudget) : null;
+    }
+
+    // With probability memeticRate, hill-climb a child of the next population without rescoring it: the
+    // climb runs on a copy and its accepted swaps are replayed on the store. Returns the bands (bits 0-2)
+    // and stacks (bits 3-5) the swaps touched, 0 when the child did not change.
+    int climb(int child, HillClimber climber, RandomSource random) {
+        if (climber == null || random.nextDouble() >= memeticRate) {
+            return 0;
+        }
+        byte[] sudoku = climber.buffer();
+        for (int cell = 0; cell < CELLS; cell++) {
+            sudoku[cell] = (byte) population.getNextCell(child, cell);
+        }
+        climber.climb(sudoku, random);
+        int units = 0;
+        for (int i = 0; i < climber.swaps(); i++) {
+            int cellA = climber.swapCellA(i);
+            int cellB = climber.swapCellB(i);
+            if (fitnessCache != null) {
+                int valueA = population.getNextCell(child, cellA);
+                int valueB = population.getNextCell(child, cellB);
+                population.setNextHash(child, population.getNextHash(child)
+                        ^ FitnessCache.key(cellA, valueA) ^ FitnessCache.key(cellA, valueB)
+                        ^ FitnessCache.key(cellB, valueB) ^ FitnessCache.key(cellB, valueA));
+            }
+            population.swapCellsInNext(child, cellA, cellB);
+            int box = PuzzleModel.BOX[cellA];
+            units |= 1 << PuzzleModel.BAND[box] | 1 << (3 + PuzzleModel.STACK[box]);
+        }
+        return units;
+    }
+
+    // Mutation operators a solver can be configured with
+    public enum Mutation {
+        BOX_SWAP, // Swap the contents of two boxes
+        CELL_SWAP // Swap two mutable cells of one box, which keeps the box a permutation and the givens fixed
+    }
+
+    // With a probability defined by mutationRate, apply the solver's mutation operator to a child of the
+    // next population without rescoring it. Returns the bands (bits 0-2) and stacks (bits 3-5) whose
+    // scores the change invalidated, 0 when the child did not change. A cell swap moves the child's scores
+    // by its delta instead (see ConflictCounts.nextSwapDelta) and so returns 0 as well.
+    int mutate(int child, double mutationRate, RandomSource random) {
+        if (random.nextDouble() >= mutationRate) {
+            return 0;
+        }
+        if (mutation == Mutation.CELL_SWAP) {
+            // Pick a box with at least two mutable cells (the next one after a random box), then two cells of it
+            int box = random.nextInt(9);
+            for (int tried = 1; model.mutableCount(box) < 2; tried++) {
+                if (tried == 9) {
+                    return 0; // No box has two mutable cells
+                }
+                box = (box + 1) % 9;
+            }
+            int first = random.nextInt(model.mutableCount(box));
+            int second = random.nextInt(model.mutableCount(box) - 1);
+            int cellA = model.mutableCell(box, first);
+            int cellB = model.mutableCell(box, second < first ? second : second + 1);
+            if (fitnessCache != null) {
+                int valueA = population.getNextCell(child, cellA);
+                int valueB = population.getNextCell(child, cellB);
+                population.setNextHash(child, population.getNextHash(child)
+                        ^ FitnessCache.key(cellA, valueA) ^ FitnessCache.key(cellA, valueB)
+                        ^ FitnessCache.key(cellB, valueB) ^ FitnessCache.key(cellB, valueA));
+            }
+            // Both cells lie in the same box, so the row change is all in its band and the column change all
+            // in its stack; both scores and the fitness move by the delta instead of being rescored
+            int rowDelta = ConflictCounts.nextSwapDelta(population, child, cellA, cellB, false);
+            int columnDelta = ConflictCounts.nextSwapDelta(population, child, cellA, cellB, true);
+            population.swapCellsInNext(child, cellA, cellB);
+            int band = PuzzleModel.BAND[box];
+            int stack = 3 + PuzzleModel.STACK[box];
+            population.setNextUnitScore(child, band, population.getNextUnitScore(child, band) + rowDelta);
+            population.setNextUnitScore(child, stack, population.getNextUnitScore(child, stack) + columnDelta);
+            population.setNextFitness(child, population.getNextFitness(child) + rowDelta + columnDelta);
+            return 0;
+        }
+
+        // Randomly select two different subgrids to swap
+        int subgrid1 = random.nextInt(9);
+        int subgrid2 = (subgrid1 + 1 + random.nextInt(8)) % 9;
+
+        // Swap the values in the two selected subgrids
+        long before = fitnessCache == null ? 0
+                : population.nextBoxHash(child, subgrid1) ^ population.nextBoxHash(child, subgrid2);
+        population.swapBoxesInNext(child, subgrid1, subgrid2);
+        if (fitnessCache != null) {
+            long after = population.nextBoxHash(child, subgrid1) ^ population.nextBoxHash(child, subgrid2);
+            if (after == before) {
+                return 0; // The two boxes held the same values, the child did not change
+            }
+            population.setNextHash(child, population.getNextHash(child) ^ before ^ after);
+        }
+
+        // Only the rows of both bands and the columns of both stacks changed
+        int bands = (1 << PuzzleModel.BAND[subgrid1]) | (1 << PuzzleModel.BAND[subgrid2]);
+        int stacks = (1 << PuzzleModel.STACK[subgrid1]) | (1 << PuzzleModel.STACK[subgrid2]);
+        return bands | stacks << 3;
+    }
+
+    // Per-row and per-column digit counts of a complete grid, from which the change in conflicts of swapping
+    // two cells follows in a few array reads instead of a rescore. Behind Chromosome's swap methods, the
+    // memetic climb and the local search engines; not thread-safe.
+    static final class ConflictCounts {
+        // Occurrences of digit d in row/column u at u * 10 + d
+        private final int[] rowCounts = new int[90];
+        private final int[] columnCounts = new int[90];
+
+        // Rebuild the counts from a grid; returns its conflicts
+        int count(byte[] sudoku) {
+            Arrays.fill(rowCounts, 0);
+            Arrays.fill(columnCounts, 0);
+            int conflicts = 0;
+            for (int cell = 0; cell < CELLS; cell++) {
+                int digit = sudoku[cell];
+                conflicts += rowCounts[PuzzleModel.ROW[cell] * 10 + digit]++ > 0 ? 1 : 0;
+                conflicts += columnCounts[PuzzleModel.COLUMN[cell] * 10 + digit]++ > 0 ? 1 : 0;
+            }
+            return conflicts;
+        }
+
+        // Change in conflicts if the two cells swapped their digits
+        int delta(byte[] sudoku, int cellA, int cellB) {
+            int valueA = sudoku[cellA];
+            int valueB = sudoku[cellB];
+            return delta(rowCounts, PuzzleModel.ROW[cellA], PuzzleModel.ROW[cellB], valueA, valueB)
+                    + delta(columnCounts, PuzzleModel.COLUMN[cellA], PuzzleModel.COLUMN[cellB], valueA, valueB);
+        }
+
+        // Swap the digits of two cells and update the counts
+        void swap(byte[] sudoku, int cellA, int cellB) {
+            int valueA = sudoku[cellA];
+            int valueB = sudoku[cellB];
+            move(rowCounts, PuzzleModel.ROW[cellA], PuzzleModel.ROW[cellB], valueA, valueB);
+            move(columnCounts, PuzzleModel.COLUMN[cellA], PuzzleModel.COLUMN[cellB], valueA, valueB);
+            sudoku[cellA] = (byte) valueB;
+            sudoku[cellB] = (byte) valueA;
+        }
+
+        // Overwrite one cell with a digit and update the counts; returns the change in conflicts
+        int set(byte[] sudoku, int cell, int value) {
+            int row = PuzzleModel.ROW[cell] * 10;
+            int column = PuzzleModel.COLUMN[cell] * 10;
+            int old = sudoku[cell];
+            int delta = (--rowCounts[row + old] > 0 ? -1 : 0) + (--columnCounts[column + old] > 0 ? -1 : 0)
+                    + (rowCounts[row + value]++ > 0 ? 1 : 0) + (columnCounts[column + value]++ > 0 ? 1 : 0);
+            sudoku[cell] = (byte) value;
+            return delta;
+        }
+
+        // True if the cell's digit repeats in its row or column
+        boolean isConflicted(byte[] sudoku, int cell) {
+            int digit = sudoku[cell];
+            return rowCounts[PuzzleModel.ROW[cell] * 10 + digit] > 1
+                    || columnCounts[PuzzleModel.COLUMN[cell] * 10 + digit] > 1;
+        }
+
+        // Change in the conflicts of two units when `valueA` moves from unit a to unit b and `valueB` the
+        // other way; a digit leaving a unit removes a conflict if it was duplicated there, one arriving adds
+        // one if the unit already held it
+        private static int delta(int[] counts, int a, int b, int valueA, int valueB) {
+            if (a == b || valueA == valueB) {
+                return 0;
+            }
+            return (counts[a * 10 + valueB] > 0 ? 1 : 0) - (counts[a * 10 + valueA] > 1 ? 1 : 0)
+                    + (counts[b * 10 + valueA] > 0 ? 1 : 0) - (counts[b * 10 + valueB] > 1 ? 1 : 0);
+        }
+
+        private static void move(int[] counts, int a, int b, int valueA, int valueB) {
+            if (a != b) {
+                counts[a * 10 + valueA]--;
+                counts[a * 10 + valueB]++;
+                counts[b * 10 + valueB]--;
+                counts[b * 10 + valueA]++;
+            }
+        }
+
+        // Change in the conflicts of the rows (or, with `columns`, the columns) of two cells of a child in the
+        // next population if the cells swapped their digits. A store keeps no count tables, so the (at most
+        // two) units are counted on the spot; that is 18 cell reads instead of rescoring a band or stack.
+        static int nextSwapDelta(PopulationStore population, int child, int cellA, int cellB, boolean columns) {
+            int a = columns ? PuzzleModel.COLUMN[cellA] : PuzzleModel.ROW[cellA];
+            int b = columns ? PuzzleModel.COLUMN[cellB] : PuzzleModel.ROW[cellB];
+            int valueA = population.getNextCell(child, cellA);
+            int valueB = population.getNextCell(child, cellB);
+            if (a == b || valueA == valueB) {
+                return 0;
+            }
+            int step = columns ? 9 : 1;
+            int firstA = columns ? a : a * 9;
+            int firstB = columns ? b : b * 9;
+            // Occurrences of valueA and valueB in unit a, and of the same digits in unit b
+            int aA = 0, aB = 0, bA = 0, bB = 0;
+            for (int i = 0; i < 9; i++) {
+                int digit = population.getNextCell(child, firstA + i * step);
+                aA += digit == valueA ? 1 : 0;
+                aB += digit == valueB ? 1 : 0;
+                digit = population.getNextCell(child, firstB + i * step);
+                bA += digit == valueA ? 1 : 0;
+                bB += digit == valueB ? 1 : 0;
+            }
+            return (aB > 0 ? 1 : 0) - (aA > 1 ? 1 : 0) + (bA > 0 ? 1 : 0) - (bB > 1 ? 1 : 0);
+        }
+    }
+
+    // Memetic step (--memetic): a bounded hill climb over swaps of two mutable cells of one box, which keep
+    // every box a permutation and the givens fixed. Each of `budget` trials draws such a swap and keeps it if
+    // it lowers the row and column conflicts, as ConflictCounts reports it. Accepted swaps are recorded, so a genome held
+    // in a population store can replay them. Not thread-safe; every breeding task, stage or worker has its own.
+    static final class HillClimber {
+        private final PuzzleModel model;
+        private final int budget;
+        // Boxes with at least two mutable cells
+        private final int[] boxes;
+        private final ConflictCounts counts = new ConflictCounts();
+        private final byte[] buffer = new byte[CELLS];
+        // Accepted swaps as cellA << 8 | cellB; each one removes a conflict, so there are at most 2 * 72
+        private final int[] swaps = new int[2 * 72];
+        private int swapCount;
+
+        HillClimber(PuzzleModel model, int budget) {
+            this.model = model;
+            this.budget = budget;
+            int count = 0;
+            for (int box = 0; box < 9; box++) {
+                count += model.mutableCount(box) >= 2 ? 1 : 0;
+            }
+            boxes = new int[count];
+            count = 0;
+            for (int box = 0; box < 9; box++) {
+                if (model.mutableCount(box) >= 2) {
+                    boxes[count++] = box;
+                }
+            }
+        }
+
+        // Scratch genome for callers that need to copy one out of a store
+        byte[] buffer() {
+            return buffer;
+        }
+
+        // Climb from a complete genome in place; returns its fitness afterwards. Stops early at 0.
+        int climb(byte[] sudoku, RandomSource random) {
+            int fitness = counts.count(sudoku);
+            swapCount = 0;
+            if (boxes.length == 0) {
+                return fitness;
+            }
+            for (int trial = 0; trial < budget && fitness > 0; trial++) {
+                int box = boxes[random.nextInt(boxes.length)];
+                int first = random.nextInt(model.mutableCount(box));
+                int second = random.nextInt(model.mutableCount(box) - 1);
+                int cellA = model.mutableCell(box, first);
+                int cellB = model.mutableCell(box, second < first ? second : second + 1);
+                int delta = counts.delta(sudoku, cellA, cellB);
+                if (delta < 0) {
+                    counts.swap(sudoku, cellA, cellB);
+                    swaps[swapCount++] = cellA << 8 | cellB;
+                    fitness += delta;
+                }
+            }
+            return fitness;
+        }
+
+        // Swaps accepted by the last climb, in the order they were made
+        int swaps() {
+            return swapCount;
+        }
+
+        int swapCellA(int index) {
+            return swaps[index] >>> 8;
+        }
+
+        int swapCellB(int index) {
+            return swaps[index] & 0xFF;
+        }
+    }
+
+    // Overwrite a slot of the current population with a genome; it is scored by the next summary pass
+    void replaceChromosome(int slot, byte[] sudoku) {
+        population.writeGenome(slot, sudoku);
+        if (fitnessCache != null) {
+            population.setHash(slot, FitnessCache.hash(sudoku, 0));
+        }
+        population.setFitness(slot, PopulationStore.DIRTY);
+    }
+
+    // Score a slot of the current population from scratch, or take its scores from the fitness cache
+    private void scoreSlot(int slot) {
+        int packed = fitnessCache == null ? -1 : fitnessCache.lookup(population.getHash(slot));
+        if (packed >= 0) {
+            for (int i = 0; i < PopulationStore.UNIT_SCORES; i++) {
+                population.setUnitScore(slot, i, FitnessCache.unitScore(packed, i));
+            }
+            population.setFitness(slot, FitnessCache.fitness(packed));
+            return;
+        }
+        population.setFitness(slot, population.scoreBandsAndStacks(slot, 7, 7));
+        evaluations.increment();
+        if (fitnessCache != null) {
+            fitnessCache.insert(population.getHash(slot), FitnessCache.pack(population, slot, false));
+        }
+    }
+
+    // Rescore the given bands/stacks of a child in the next population, unless the fitness cache knows it
+    private void scoreChild(int child, int bands, int stacks) {
+        int packed = fitnessCache == null ? -1 : fitnessCache.lookup(population.getNextHash(child));
+        if (packed >= 0) {
+            for (int i = 0; i < PopulationStore.UNIT_SCORES; i++) {
+                population.setNextUnitScore(child, i, FitnessCache.unitScore(packed, i));
+            }
+            population.setNextFitness(child, FitnessCache.fitness(packed));
+            return;
+        }
+        population.setNextFitness(child, population.scoreNextBandsAndStacks(child, bands, stacks));
+        evaluations.increment();
+        if (fitnessCache != null) {
+            fitnessCache.insert(population.getNextHash(child), FitnessCache.pack(population, child, true));
+        }
+    }
+
+    // Copies the chromosome in the given slot of the current population out of the store
+    public Chromosome toChromosome(int slot) {
+        byte[] sudoku = new byte[CELLS];
+        population.readGenome(slot, sudoku);
+        return new Chromosome(sudoku, model);
+    }
+
+    // Evaluate the fitness of a packed genome starting at `offset` by counting row and column violations
+    public static int evaluateGenome(byte[] genome, int offset) {
+        return FitnessKernel.rowColumnViolations(genome, offset);
+    }
+
+    // Recompute the cached scores of the bands/stacks selected by bit k of `bands`/`stacks` (rows/columns
+    // 3k..3k+2) for one arena slot, and return the slot's total fitness as the sum of all six scores
+    static int scoreBandsAndStacks(byte[] genomes, byte[] scores, int slot, int bands, int stacks) {
+        int offset = PopulationArena.offset(slot);
+        int base = slot * PopulationArena.UNIT_SCORES;
+        int fitness = 0;
+        for (int k = 0; k < 3; k++) {
+            if ((bands & (1 << k)) != 0) {
+                scores[base + k] = (byte) FitnessKernel.bandViolations(genomes, offset, k);
+            }
+            if ((stacks & (1 << k)) != 0) {
+                scores[base + 3 + k] = (byte) FitnessKernel.stackViolations(genomes, offset, k);
+            }
+            fitness += scores[base + k] + scores[base + 3 + k];
+        }
+        return fitness;
+    }
+
+    // Reference implementations of the fitness terms, kept to cross-check FitnessKernel (see --check-fitness)
+    private static int countRowViolations(byte[] sudoku, int offset) {
+        int violations = 0;
+        // Iterate through each row to count conflicts
+        for (int i = 0; i < 9; i++) {
+            boolean[] present = new boolean[10];
+            for (int j = 0; j < 9; j++) {
+                int value = sudoku[offset + i * 9 + j];
+                if (value != 0) {
+                    if (present[value]) {
+                        violations++; // Increment violations if the value is already seen
+                    } else {
+                        present[value] = true; // Mark the value as seen
+                    }
+                }
+            }
+        }
+        return violations;
+    }
+
+    private static int countColumnViolations(byte[] sudoku, int offset) {
+        int violations = 0;
+        // Loop through each column
+        for (int j = 0; j < 9; j++) {
+            boolean[] present = new boolean[10]; // Track numbers present in the column
+            for (int i = 0; i < 9; i++) {
+                int value = sudoku[offset + i * 9 + j];
+                if (value != 0) {
+                    // If the number is already present, increment the violations count
+                    if (present[value]) {
+                        violations++;
+                    } else {
+                        // Mark the number as present
+                        present[value] = true;
+                    }
+                }
+            }
+        }
+        return violations;
+    }
+
+    private static int countSubgridViolations(byte[] sudoku, int offset) {
+        int violations = 0;
+        // Loop through each 3x3 subgrid
+        for (int gridRow = 0; gridRow < 3; gridRow++) {
+            for (int gridCol = 0; gridCol < 3; gridCol++) {
+                boolean[] present = new boolean[10]; // Track numbers present in the subgrid
+                // Loop through cells in the 3x3 subgrid
+                for (int row = gridRow * 3; row < gridRow * 3 + 3; row++) {
+                    for (int col = gridCol * 3; col < gridCol * 3 + 3; col++) {
+                        int value = sudoku[offset + row * 9 + col];
+                        if (value != 0) {
+                            // If the number is already present, increment the violations count
+                            if (present[value]) {
+                                violations++;
+                            } else {
+                                // Mark the number as present
+                                present[value] = true;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return violations;
+    }
+
+    // Allocation-free fitness kernel. Every unit (row, column or subgrid) is reduced to a 9-bit mask of
+    // the digits it contains (bit d set for digit d, bit 0 collects empty cells and is masked off), so the
+    // number of duplicates in a unit is (filled cells) - Integer.bitCount(mask). The 9 cells of a unit are
+    // unrolled by hand; the only loop left walks the 9 rows, accumulating the column masks on the way.
+    public static final class FitnessKernel {
+        private static final int DIGITS = 0x3FE; // Bits 1..9
+
+        private FitnessKernel() {
+        }
+
+        // Row plus column violations of the genome starting at `offset`
+        public static int rowColumnViolations(byte[] g, int offset) {
+            int c0 = 0, c1 = 0, c2 = 0, c3 = 0, c4 = 0, c5 = 0, c6 = 0, c7 = 0, c8 = 0;
+            int filled = 0;
+            int distinctInRows = 0;
+            for (int i = offset; i < offset + CELLS; i += 9) {
+                int v0 = g[i], v1 = g[i + 1], v2 = g[i + 2], v3 = g[i + 3], v4 = g[i + 4],
+                        v5 = g[i + 5], v6 = g[i + 6], v7 = g[i + 7], v8 = g[i + 8];
+                int b0 = 1 << v0, b1 = 1 << v1, b2 = 1 << v2, b3 = 1 << v3, b4 = 1 << v4,
+                        b5 = 1 << v5, b6 = 1 << v6, b7 = 1 << v7, b8 = 1 << v8;
+                distinctInRows += Integer.bitCount((b0 | b1 | b2 | b3 | b4 | b5 | b6 | b7 | b8) & DIGITS);
+                // (v + 15) >> 4 is 1 for digits 1..9 and 0 for an empty cell
+                filled += ((v0 + 15) >> 4) + ((v1 + 15) >> 4) + ((v2 + 15) >> 4) + ((v3 + 15) >> 4)
+                        + ((v4 + 15) >> 4) + ((v5 + 15) >> 4) + ((v6 + 15) >> 4) + ((v7 + 15) >> 4)
+                        + ((v8 + 15) >> 4);
+                c0 |= b0; c1 |= b1; c2 |= b2; c3 |= b3; c4 |= b4; c5 |= b5; c6 |= b6; c7 |= b7; c8 |= b8;
+            }
+            int distinctInColumns = Integer.bitCount(c0 & DIGITS) + Integer.bitCount(c1 & DIGITS)
+                    + Integer.bitCount(c2 & DIGITS) + Integer.bitCount(c3 & DIGITS) + Integer.bitCount(c4 & DIGITS)
+                    + Integer.bitCount(c5 & DIGITS) + Integer.bitCount(c6 & DIGITS) + Integer.bitCount(c7 & DIGITS)
+                    + Integer.bitCount(c8 & DIGITS);
+            // Every filled cell belongs to exactly one row and one column
+            return 2 * filled - distinctInRows - distinctInColumns;
+        }
+
+        // Subgrid violations of the genome starting at `offset`
+        public static int subgridViolations(byte[] g, int offset) {
+            int violations = 0;
+            for (int band = offset; band < offset + CELLS; band += 27) {
+                violations += boxViolations(g, band) + boxViolations(g, band + 3) + boxViolations(g, band + 6);
+            }
+            return violations;
+        }
+
+        // Row violations of rows 3 * band .. 3 * band + 2
+        public static int bandViolations(byte[] g, int offset, int band) {
+            int start = offset + band * 27;
+            return unitViolations(g, start, 1) + unitViolations(g, start + 9, 1) + unitViolations(g, start + 18, 1);
+        }
+
+        // Column violations of columns 3 * stack .. 3 * stack + 2
+        public static int stackViolations(byte[] g, int offset, int stack) {
+            int start = offset + stack * 3;
+            return unitViolations(g, start, 9) + unitViolations(g, start + 1, 9) + unitViolations(g, start + 2, 9);
+        }
+
+        // Same as bandViolations/stackViolations for a genome held in a (direct) ByteBuffer
+        public static int bandViolations(ByteBuffer g, int offset, int band) {
+            int start = offset + band * 27;
+            return unitViolations(g, start, 1) + unitViolations(g, start + 9, 1) + unitViolations(g, start + 18, 1);
+        }
+
+        public static int stackViolations(ByteBuffer g, int offset, int stack) {
+            int start = offset + stack * 3;
+            return unitViolations(g, start, 9) + unitViolations(g, start + 1, 9) + unitViolations(g, start + 2, 9);
+        }
+
+        // Violations of the 3x3 box whose top-left cell is at `start`
+        public static int boxViolations(byte[] g, int start) {
+            int v0 = g[start], v1 = g[start + 1], v2 = g[start + 2],
+                    v3 = g[start + 9], v4 = g[start + 10], v5 = g[start + 11],
+                    v6 = g[start + 18], v7 = g[start + 19], v8 = g[start + 20];
+            return duplicates(v0, v1, v2, v3, v4, v5, v6, v7, v8);
+        }
+
+        // Violations of the 9 cells start, start + step, ..., start + 8 * step (a row for step 1, a column for step 9)
+        public static int unitViolations(byte[] g, int start, int step) {
+            return duplicates(g[start], g[start + step], g[start + 2 * step], g[start + 3 * step],
+                    g[start + 4 * step], g[start + 5 * step], g[start + 6 * step], g[start + 7 * step],
+                    g[start + 8 * step]);
+        }
+
+        public static int unitViolations(ByteBuffer g, int start, int step) {
+            return duplicates(g.get(start), g.get(start + step), g.get(start + 2 * step), g.get(start + 3 * step),
+                    g.get(start + 4 * step), g.get(start + 5 * step), g.get(start + 6 * step), g.get(start + 7 * step),
+                    g.get(start + 8 * step));
+        }
+
+        static int duplicates(int v0, int v1, int v2, int v3, int v4, int v5, int v6, int v7, int v8) {
+            int mask = (1 << v0) | (1 << v1) | (1 << v2) | (1 << v3) | (1 << v4)
+                    | (1 << v5) | (1 << v6) | (1 << v7) | (1 << v8);
+            int filled = ((v0 + 15) >> 4) + ((v1 + 15) >> 4) + ((v2 + 15) >> 4) + ((v3 + 15) >> 4)
+                    + ((v4 + 15) >> 4) + ((v5 + 15) >> 4) + ((v6 + 15) >> 4) + ((v7 + 15) >> 4)
+                    + ((v8 + 15) >> 4);
+            return filled - Integer.bitCount(mask & DIGITS);
+        }
+    }
+
+    // Compares FitnessKernel with the boolean[10] reference scans on random grids (empty cells included);
+    // returns the number of mismatching grids
+    public static int checkFitnessKernel(int grids, long seed) {
+        Random random = new Random(seed);
+        byte[] grid = new byte[CELLS];
+        int mismatches = 0;
+        for (int i = 0; i < grids; i++) {
+            for (int cell = 0; cell < CELLS; cell++) {
+                grid[cell] = (byte) random.nextInt(10);
+            }
+            int expected = countRowViolations(grid, 0) + countColumnViolations(grid, 0);
+            int expectedRows = 0;
+            int expectedColumns = 0;
+            for (int unit = 0; unit < 9; unit++) {
+                expectedRows += FitnessKernel.unitViolations(grid, unit * 9, 1);
+                expectedColumns += FitnessKernel.unitViolations(grid, unit, 9);
+            }
+            if (FitnessKernel.rowColumnViolations(grid, 0) != expected
+                    || expectedRows != countRowViolations(grid, 0)
+                    || expectedColumns != countColumnViolations(grid, 0)
+                    || FitnessKernel.subgridViolations(grid, 0) != countSubgridViolations(grid, 0)) {
+                mismatches++;
+            }
+        }
+        return mismatches;
+    }
+
+    // Prints generations per second of a 100k population of an empty puzzle with 1 to maxThreads threads
+    public static void benchmarkThreads(int maxThreads) {
+        PuzzleModel emptyPuzzle = PuzzleModel.compile(new byte[CELLS]);
+        double singleThreaded = 0;
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            Main instance = new Main(SolverConfig.builder().threads(threads).build().forPuzzle(0));
+            instance.generateInitialChromosomes(100000, emptyPuzzle);
+            for (int i = 0; i < 5; i++) { // Warm-up
+                instance.breedNextGeneration();
+                instance.population.swap();
+            }
+            int generations = 20;
+            long start = System.nanoTime();
+            for (int i = 0; i < generations; i++) {
+                instance.breedNextGeneration();
+                instance.population.swap();
+            }
+            double rate = generations * 1e9 / (System.nanoTime() - start);
+            if (threads == 1) {
+                singleThreaded = rate;
+            }
+            System.out.printf("%d thread(s): %.2f generations/s (%.2fx)%n", threads, rate, rate / singleThreaded);
+            if (instance.pool != null) {
+                instance.pool.shutdown();
+            }
+        }
+    }
+
+    // Prints the time from an empty store to a scored 500k population of the empty puzzle (the ultra-hard
+    // setting), with 1 to maxThreads threads
+    public static void benchmarkInitialization(int maxThreads) {
+        PuzzleModel emptyPuzzle = PuzzleModel.compile(new byte[CELLS]);
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            Main instance = new Main(SolverConfig.builder().threads(threads).build());
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < 5; i++) { // The first runs warm up the JIT, keep the fastest
+                long start = System.nanoTime();
+                instance.generateInitialChromosomes(500000, emptyPuzzle);
+                best = Math.min(best, System.nanoTime() - start);
+                instance.population = null;
+            }
+            System.out.printf("%d thread(s): first generation after %.1f ms%n", threads, best / 1e6);
+            if (instance.pool != null) {
+                instance.pool.shutdown();
+            }
+        }
+    }
+
+    // Prints the time to solve a grid with one population and with islands (as many as configured, or 4
+    // when no --islands was given) sharing the same total population, `runs` times each
+    public static void benchmarkIslands(byte[] grid, SolverConfig config, int runs) {
+        int islands = config.getIslands() > 1 ? config.getIslands() : 4;
+        SudokuSolver single = new SudokuSolver(config.toBuilder().islands(1).build());
+        SudokuSolver archipelago = new SudokuSolver(config.toBuilder().islands(islands).build());
+        double singleTotal = 0, islandTotal = 0;
+        for (int run = 1; run <= runs; run++) {
+            double singleSeconds = single.solve(grid).getSeconds();
+            double islandSeconds = archipelago.solve(grid).getSeconds();
+            singleTotal += singleSeconds;
+            islandTotal += islandSeconds;
+            System.out.printf("run %d: single population %.2f s, %d islands (%s) %.2f s%n",
+                    run, singleSeconds, islands, config.getTopology().name().toLowerCase(), islandSeconds);
+        }
+        System.out.printf("mean: single population %.2f s, %d islands %.2f s%n",
+                singleTotal / runs, islands, islandTotal / runs);
+    }
+
+    // Prints how many bounded ints every random source draws per second, one call at a time and in bulk,
+    // then the mean time to solve a grid with it over `runs` runs and the time per generation
+    public static void benchmarkRandom(byte[] grid, SolverConfig config, int runs) {
+        int draws = 10_000_000;
+        int[] buffer = new int[1024];
+        long sink = 0; // Keeps the JIT from dropping the draws
+        for (RandomSource.Kind kind : RandomSource.Kind.values()) {
+            RandomSource random = RandomSource.create(kind, 42);
+            double single = 0, bulk = 0;
+            for (int pass = 0; pass < 5; pass++) { // The first passes warm up the JIT, keep the fastest
+                long start = System.nanoTime();
+                for (int i = 0; i < draws; i++) {
+                    sink += random.nextInt(100000);
+                }
+                single = Math.max(single, draws * 1e3 / (System.nanoTime() - start));
+                start = System.nanoTime();
+                for (int i = 0; i < draws; i += buffer.length) {
+                    random.nextInts(buffer, buffer.length, 100000);
+                    sink += buffer[i & 1023];
+                }
+                bulk = Math.max(bulk, draws * 1e3 / (System.nanoTime() - start));
+            }
+            // A run stuck on a plateau gives up after 200 generations unless the configuration has its own limit
+            SolverConfig settings = config.toBuilder().randomSource(kind).build();
+            if (settings.getMaxGenerations() == 0) {
+                settings = settings.toBuilder().maxGenerations(200).build();
+            }
+            SudokuSolver solver = new SudokuSolver(settings);
+            double seconds = 0;
+            long generations = 0;
+            int solved = 0;
+            for (int run = 0; run < runs; run++) {
+                SolveResult result = solver.solve(grid);
+                seconds += result.getSeconds();
+                generations += result.getGenerations();
+                solved += result.isSolved() ? 1 : 0;
+            }
+            System.out.printf("%-10s %6.0f M ints/s, %6.0f M ints/s in bulk; %d/%d solved, %.2f s per run, %.1f ms per generation%n",
+                    kind.name().toLowerCase(), single, bulk, solved, runs, seconds / runs, seconds * 1e3 / Math.max(1, generations));
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    // Prints puzzles per second of the exact engine alone (one reused ExactSolver), of the exact engine and
+    // of the GA through SudokuSolver with the given configuration, over the same puzzles. GA runs give up
+    // after 200 generations unless the configuration has its own limit.
+    public static void benchmarkExact(List<byte[]> puzzles, SolverConfig config) {
+        if (puzzles.isEmpty()) {
+            System.err.println("No puzzles in the input");
+            return;
+        }
+        ExactSolver exact = new ExactSolver();
+        int solved = 0;
+        long rounds = 0;
+        long start = System.nanoTime();
+        // Repeat the corpus for at least a second, after a round to warm up the JIT
+        for (long elapsed = 0; elapsed < 1_000_000_000L; elapsed = System.nanoTime() - start) {
+            if (rounds == 1) {
+                start = System.nanoTime();
+                solved = 0;
+            }
+            for (byte[] puzzle : puzzles) {
+                solved += exact.solve(puzzle) ? 1 : 0;
+            }
+            rounds++;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long counted = (rounds - 1) * puzzles.size();
+        System.out.printf("exact engine:        %d/%d solved, %.0f puzzles/s%n", solved, counted, counted / seconds);
+
+        SolverConfig geneticConfig = config.toBuilder().engine(SolverConfig.Engine.GENETIC).build();
+        if (geneticConfig.getMaxGenerations() == 0) {
+            geneticConfig = geneticConfig.toBuilder().maxGenerations(200).build();
+        }
+        SolverConfig[] configs = {config.toBuilder().engine(SolverConfig.Engine.EXACT).build(), geneticConfig};
+        String[] names = {"exact SudokuSolver:", "genetic SudokuSolver:"};
+        for (int i = 0; i < configs.length; i++) {
+            SudokuSolver solver = new SudokuSolver(configs[i]);
+            int repeats = i == 0 ? 1000 : 1;
+            solved = 0;
+            start = System.nanoTime();
+            for (int repeat = 0; repeat < repeats; repeat++) {
+                for (byte[] puzzle : puzzles) {
+                    solved += solver.solve(puzzle).isSolved() ? 1 : 0;
+                }
+            }
+            seconds = (System.nanoTime() - start) / 1e9;
+            counted = (long) repeats * puzzles.size();
+            System.out.printf("%-20s %d/%d solved, %.2f puzzles/s%n", names[i], solved, counted, counted / seconds);
+        }
+    }
+
+    // Bounded memo of unit scores keyed by the Zobrist hash of a genome: the XOR of one random 64-bit key per
+    // (cell, value) pair, so changing a cell, copying a box or swapping two boxes updates the hash with a few
+    // XORs instead of a rescan. The table is split into sets of WAYS entries; a full set evicts with the CLOCK
+    // algorithm (a hand sweeps the set, clearing referenced bits, and replaces the first unreferenced entry).
+    // The six unit scores are packed 5 bits each into the value (a band or stack has at most 24 violations).
+    // Two different genomes sharing a 64-bit hash would share scores; at the populations used here that is
+    // far less likely than a hardware error. While a population is still improving its children are mostly
+    // new and well under 1% of lookups hit, so the memo samples its hit rate: a window of WINDOW lookups
+    // hitting less than MIN_HIT_PERCENT turns probing and inserting off for the next SKIPPED_WINDOWS
+    // windows' worth of lookups, then it samples again (a stalled population clones a lot and hits far more
+    // often). Clone detection compares hashes and keeps working meanwhile. Not thread-safe.
+    public static final class FitnessCache {
+        public static final int WAYS = 4;
+        private static final int WINDOW = 1 << 16;
+        private static final int MIN_HIT_PERCENT = 5;
+        private static final int SKIPPED_WINDOWS = 8;
+        // Zobrist keys, entry [cell * 10 + value]; fixed seed so hashes are reproducible between runs
+        private static final long[] KEYS = new long[CELLS * 10];
+        private static final int REFERENCED = 1 << 30;
+
+        static {
+            Random keyRandom = new Random(0x5EED_2B0B);
+            for (int i = 0; i < KEYS.length; i++) {
+                KEYS[i] = keyRandom.nextLong();
+            }
+        }
+
+        private final long[] keys; // 0 marks an empty entry
+        private final int[] values;
+        private final byte[] hands; // CLOCK hand of every set
+        private final int setMask;
+        // Lookups and hits of the current sampling window, and lookups left to answer as misses unprobed
+        private int windowLookups, windowHits, skipping;
+        // Statistics printed by summary()
+        private long lookups, hits, inserts, evictions, clones, children, skipped;
+
+        // Capacity is rounded up to a power of two number of entries
+        public FitnessCache(int capacity) {
+            int sets = 1;
+            while (sets * WAYS < capacity) {
+                sets <<= 1;
+            }
+            keys = new long[sets * WAYS];
+            values = new int[sets * WAYS];
+            hands = new byte[sets];
+            setMask = sets - 1;
+        }
+
+        public static long key(int cell, int value) {
+            return KEYS[cell * 10 + value];
+        }
+
+        // Zobrist hash of a whole genome starting at `offset`
+        public static long hash(byte[] genome, int offset) {
+            long hash = 0;
+            for (int cell = 0; cell < CELLS; cell++) {
+                hash ^= KEYS[cell * 10 + genome[offset + cell]];
+            }
+            return hash;
+        }
+
+        // Packed unit scores of the genome with the given hash, or -1 when it is not cached (or the memo is
+        // skipped for a low hit rate)
+        public int lookup(long hash) {
+            if (skipping > 0) {
+                skipping--;
+                skipped++;
+                return -1;
+            }
+            int packed = probe(hash == 0 ? 1 : hash);
+            lookups++;
+            if (packed >= 0) {
+                hits++;
+                windowHits++;
+            }
+            if (++windowLookups == WINDOW) {
+                if (windowHits * 100 < MIN_HIT_PERCENT * WINDOW) {
+                    skipping = SKIPPED_WINDOWS * WINDOW;
+                }
+                windowLookups = 0;
+                windowHits = 0;
+            }
+            return packed;
+        }
+
+        private int probe(long key) {
+            int set = (int) (key ^ key >>> 32) & setMask;
+            for (int way = set * WAYS, end = way + WAYS; way < end; way++) {
+                if (keys[way] == key) {
+                    values[way] |= REFERENCED;
+                    return values[way] & ~REFERENCED;
+                }
+            }
+            return -1;
+        }
+
+        // Remember the packed unit scores of a genome; ignored while the memo is skipped
+        public void insert(long hash, int packedScores) {
+            if (skipping > 0) {
+                return;
+            }
+            long key = hash == 0 ? 1 : hash;
+            int set = (int) (key ^ key >>> 32) & setMask;
+            int first = set * WAYS;
+            for (int way = first; way < first + WAYS; way++) {
+                if (keys[way] == 0 || keys[way] == key) {
+                    keys[way] = key;
+                    values[way] = packedScores;
+                    inserts++;
+                    return;
+                }
+            }
+            // Set is full: sweep from the hand, giving referenced entries a second chance
+            int hand = hands[set];
+            while ((values[first + hand] & REFERENCED) != 0) {
+                values[first + hand] &= ~REFERENCED;
+                hand = (hand + 1) % WAYS;
+            }
+            keys[first + hand] = key;
+            values[first + hand] = packedScores;
+            hands[set] = (byte) ((hand + 1) % WAYS);
+            inserts++;
+            evictions++;
+        }
+
+        // Record a child built by crossover, and whether it turned out identical to one of its parents
+        public void countChild(boolean clone) {
+            children++;
+            if (clone) {
+                clones++;
+            }
+        }
+
+        // Six unit scores of a slot packed 5 bits each
+        public static int pack(PopulationStore store, int slot, boolean next) {
+            int packed = 0;
+            for (int i = 0; i < PopulationStore.UNIT_SCORES; i++) {
+                packed |= (next ? store.getNextUnitScore(slot, i) : store.getUnitScore(slot, i)) << (5 * i);
+            }
+            return packed;
+        }
+
+        // Sum of the packed unit scores, i.e. the fitness they describe
+        public static int fitness(int packed) {
+            int fitness = 0;
+            for (int i = 0; i < PopulationStore.UNIT_SCORES; i++) {
+                fitness += (packed >>> (5 * i)) & 31;
+            }
+            return fitness;
+        }
+
+        public static int unitScore(int packed, int index) {
+            return (packed >>> (5 * index)) & 31;
+        }
+
+        public String summary() {
+            return String.format("Fitness cache: %d lookups, %d hits (%.1f%%), %d inserts, %d evictions, "
+                    + "%d lookups skipped for a hit rate under %d%%, "
+                    + "%d of %d children were clones of a parent (%.1f%%); %d evaluations saved",
+                    lookups, hits, lookups == 0 ? 0.0 : 100.0 * hits / lookups, inserts, evictions,
+                    skipped, MIN_HIT_PERCENT,
+                    clones, children, children == 0 ? 0.0 : 100.0 * clones / children, hits + clones);
+        }
+    }
+
+    // Double-buffered storage of a population. Every slot holds a packed genome, its fitness and six cached
+    // unit scores (row violations of bands 0..2 followed by column violations of stacks 0..2). Selection
+    // reads the current generation, crossover and mutation write children into the next one, and swap()
+    // makes the next generation current without allocating.
+    public abstract static class PopulationStore {
+        public static final int UNIT_SCORES = 6;
+        // Fitness of a slot whose scores have not been computed yet
+        public static final int DIRTY = -1;
+        // Most chromosomes a store can hold: each buffer of genomes is one int-indexed array or ByteBuffer
+        public static final int MAX_SIZE = (Integer.MAX_VALUE - 8) / CELLS;
+
+        protected final int size;
+
+        protected PopulationStore(int size) {
+            this.size = size;
+        }
+
+        // Length of a buffer holding `perSlot` entries for every slot, computed in long so that a population
+        // too large for one buffer fails here instead of overflowing into a negative or short length
+        protected static int length(int size, int perSlot) {
+            long length = (long) size * perSlot;
+            if (size < 0 || length > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("A population of " + size + " does not fit a store, the limit is "
+                        + MAX_SIZE);
+            }
+            return (int) length;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        // Index of the top-left cell of a 3x3 box inside a packed genome
+        public static int boxStart(int box) {
+            return PuzzleModel.BOX_START[box];
+        }
+
+        public abstract int getFitness(int slot);
+
+        public abstract void setFitness(int slot, int value);
+
+        public abstract int getNextFitness(int slot);
+
+        public abstract void setNextFitness(int slot, int value);
+
+        public abstract int getUnitScore(int slot, int index);
+
+        public abstract void setUnitScore(int slot, int index, int value);
+
+        public abstract int getNextUnitScore(int slot, int index);
+
+        public abstract void setNextUnitScore(int slot, int index, int value);
+
+        // Value of one cell of a slot in the current/next generation
+        public abstract int getCell(int slot, int cell);
+
+        public abstract int getNextCell(int slot, int cell);
+
+        // Copy a genome between a slot of the current generation and a byte[81]
+        public abstract void writeGenome(int slot, byte[] sudoku);
+
+        public abstract void readGenome(int slot, byte[] sudoku);
+
+        // Copy a whole genome, or one box of it, from the current generation into the next
+        public abstract void copyGenomeToNext(int parent, int child);
+
+        public abstract void copyBoxToNext(int parent, int child, int box);
+
+        public abstract void swapBoxesInNext(int child, int box1, int box2);
+
+        // Swap the values of two cells of the same box of a child in the next generation
+        public abstract void swapCellsInNext(int child, int cellA, int cellB);
+
+        // Recompute the cached scores of the bands/stacks selected by bit k of `bands`/`stacks` (rows/columns
+        // 3k..3k+2) and return the slot's fitness as the sum of all six scores, in the current/next generation
+        public abstract int scoreBandsAndStacks(int slot, int bands, int stacks);
+
+        public abstract int scoreNextBandsAndStacks(int slot, int bands, int stacks);
+
+        // Zobrist hashes of every slot, only maintained once trackHashes() was called (see FitnessCache)
+        private long[] hashes;
+        private long[] nextHashes;
+
+        public void trackHashes() {
+            hashes = new long[size];
+            nextHashes = new long[size];
+        }
+
+        public long getHash(int slot) {
+            return hashes[slot];
+        }
+
+        public void setHash(int slot, long hash) {
+            hashes[slot] = hash;
+        }
+
+        public long getNextHash(int slot) {
+            return nextHashes[slot];
+        }
+
+        public void setNextHash(int slot, long hash) {
+            nextHashes[slot] = hash;
+        }
+
+        // Zobrist hash contribution of one box of a slot in the current generation
+        public long boxHash(int slot, int box) {
+            long hash = 0;
+            for (int cell : PuzzleModel.BOX_CELLS[box]) {
+                hash ^= FitnessCache.key(cell, getCell(slot, cell));
+            }
+            return hash;
+        }
+
+        public long nextBoxHash(int slot, int box) {
+            long hash = 0;
+            for (int cell : PuzzleModel.BOX_CELLS[box]) {
+                hash ^= FitnessCache.key(cell, getNextCell(slot, cell));
+            }
+            return hash;
+        }
+
+        // Make the next generation current; the old current buffers are overwritten by the next generation
+        public void swap() {
+            long[] tempHashes = hashes;
+            hashes = nextHashes;
+            nextHashes = tempHashes;
+            swapBuffers();
+        }
+
+        protected abstract void swapBuffers();
+    }
+
+    // Heap population stored as structure-of-arrays: all genomes live in one contiguous byte array
+    // (slot i occupies cells [i * 81, i * 81 + 81)) with parallel arrays of fitness values and unit scores.
+    public static class PopulationArena extends PopulationStore {
+        private byte[] genomes;
+        private byte[] nextGenomes;
+        private int[] fitness;
+        private int[] nextFitness;
+        private byte[] unitScores;
+        private byte[] nextUnitScores;
+
+        public PopulationArena(int size) {
+            super(size);
+            this.genomes = new byte[length(size, CELLS)];
+            this.nextGenomes = new byte[length(size, CELLS)];
+            this.fitness = new int[size];
+            this.nextFitness = new int[size];
+            this.unitScores = new byte[length(size, UNIT_SCORES)];
+            this.nextUnitScores = new byte[length(size, UNIT_SCORES)];
+        }
+
+        // Index of the first cell of the given slot inside the genome arrays
+        public static int offset(int slot) {
+            return slot * CELLS;
+        }
+
+        public byte[] genomes() {
+            return genomes;
+        }
+
+        public byte[] nextGenomes() {
+            return nextGenomes;
+        }
+
+        public byte[] unitScores() {
+            return unitScores;
+        }
+
+        public byte[] nextUnitScores() {
+            return nextUnitScores;
+        }
+
+        @Override
+        public int getFitness(int slot) {
+            return fitness[slot];
+        }
+
+        @Override
+        public void setFitness(int slot, int value) {
+            fitness[slot] = value;
+        }
+
+        @Override
+        public int getNextFitness(int slot) {
+            return nextFitness[slot];
+        }
+
+        @Override
+        public void setNextFitness(int slot, int value) {
+            nextFitness[slot] = value;
+        }
+
+        @Override
+        public int getUnitScore(int slot, int index) {
+            return unitScores[slot * UNIT_SCORES + index];
+        }
+
+        @Override
+        public void setUnitScore(int slot, int index, int value) {
+            unitScores[slot * UNIT_SCORES + index] = (byte) value;
+        }
+
+        @Override
+        public int getNextUnitScore(int slot, int index) {
+            return nextUnitScores[slot * UNIT_SCORES + index];
+        }
+
+        @Override
+        public void setNextUnitScore(int slot, int index, int value) {
+            nextUnitScores[slot * UNIT_SCORES + index] = (byte) value;
+        }
+
+        @Override
+        public int getCell(int slot, int cell) {
+            return genomes[offset(slot) + cell];
+        }
+
+        @Override
+        public int getNextCell(int slot, int cell) {
+            return nextGenomes[offset(slot) + cell];
+        }
+
+        @Override
+        public void writeGenome(int slot, byte[] sudoku) {
+            System.arraycopy(sudoku, 0, genomes, offset(slot), CELLS);
+        }
+
+        @Override
+        public void readGenome(int slot, byte[] sudoku) {
+            System.arraycopy(genomes, offset(slot), sudoku, 0, CELLS);
+        }
+
+        @Override
+        public void copyGenomeToNext(int parent, int child) {
+            System.arraycopy(genomes, offset(parent), nextGenomes, offset(child), CELLS);
+        }
+
+        // Copies the box one 3-cell row segment at a time
+        @Override
+        public void copyBoxToNext(int parent, int child, int box) {
+            int start = boxStart(box);
+            int from = offset(parent) + start;
+            int to = offset(child) + start;
+            for (int rowOffset = 0; rowOffset < 27; rowOffset += 9) {
+                System.arraycopy(genomes, from + rowOffset, nextGenomes, to + rowOffset, 3);
+            }
+        }
+
+        @Override
+        public void swapBoxesInNext(int child, int box1, int box2) {
+            int start1 = offset(child) + boxStart(box1);
+            int start2 = offset(child) + boxStart(box2);
+            for (int rowOffset = 0; rowOffset < 27; rowOffset += 9) {
+                for (int colOffset = 0; colOffset < 3; colOffset++) {
+                    byte temp = nextGenomes[start1 + rowOffset + colOffset];
+                    nextGenomes[start1 + rowOffset + colOffset] = nextGenomes[start2 + rowOffset + colOffset];
+                    nextGenomes[start2 + rowOffset + colOffset] = temp;
+                }
+            }
+        }
+
+        @Override
+        public void swapCellsInNext(int child, int cellA, int cellB) {
+            int offset = offset(child);
+            byte temp = nextGenomes[offset + cellA];
+            nextGenomes[offset + cellA] = nextGenomes[offset + cellB];
+            nextGenomes[offset + cellB] = temp;
+        }
+
+        @Override
+        public int scoreBandsAndStacks(int slot, int bands, int stacks) {
+            return Main.scoreBandsAndStacks(genomes, unitScores, slot, bands, stacks);
+        }
 
-        // Choosing variables for different sudoku difficulties
-        if (mutablePositions.size() < EASYTHRESHOLD) { // Easy sudoku
-            POPULATIONSIZE = 100000;
-            TOURNAMENTSIZE = 8;
-            MUTATIONRATE = 0.34;
-        } else if (mutablePositions.size() < HARDTHRESHOLD) { // Hard sudoku
-            POPULATIONSIZE = 100000;
-            TOURNAMENTSIZE = 8;
-            MUTATIONRATE = 0.34;
+        @Override
+        public int scoreNextBandsAndStacks(int slot, int bands, int stacks) {
+            return Main.scoreBandsAndStacks(nextGenomes, nextUnitScores, slot, bands, stacks);
         }
-        else { // Ultra-hard sudoku
-            POPULATIONSIZE = 500000;
-            TOURNAMENTSIZE = 3;
-            MUTATIONRATE = 0.15;
+
+        @Override
+        protected void swapBuffers() {
+            byte[] tempGenomes = genomes;
+            genomes = nextGenomes;
+            nextGenomes = tempGenomes;
+            int[] tempFitness = fitness;
+            fitness = nextFitness;
+            nextFitness = tempFitness;
+            byte[] tempScores = unitScores;
+            unitScores = nextUnitScores;
+            nextUnitScores = tempScores;
         }
-        
-        
+    }
 
-        // Generate initial population of 100 chromosomes
-        mainInstance.generateInitialChromosomes(POPULATIONSIZE, baseSudoku, mutablePositions);
+    // Population kept outside the Java heap in direct buffers: one for the genomes (same row-major layout
+    // as PopulationArena), one for the fitness values and one for the unit scores, each double-buffered.
+    // The heap then only holds a handful of buffer objects whatever the population size, so GC has nothing
+    // to trace or copy. A direct buffer is limited to 2^31 bytes, i.e. about 26 million genomes.
+    public static class OffHeapPopulationStore extends PopulationStore {
+        private ByteBuffer genomes;
+        private ByteBuffer nextGenomes;
+        private ByteBuffer fitness;
+        private ByteBuffer nextFitness;
+        private ByteBuffer unitScores;
+        private ByteBuffer nextUnitScores;
 
-        Chromosome bestSolution = null;
+        public OffHeapPopulationStore(int size) {
+            super(size);
+            this.genomes = ByteBuffer.allocateDirect(length(size, CELLS));
+            this.nextGenomes = ByteBuffer.allocateDirect(length(size, CELLS));
+            this.fitness = ByteBuffer.allocateDirect(length(size, Integer.BYTES)).order(ByteOrder.nativeOrder());
+            this.nextFitness = ByteBuffer.allocateDirect(length(size, Integer.BYTES)).order(ByteOrder.nativeOrder());
+            this.unitScores = ByteBuffer.allocateDirect(length(size, UNIT_SCORES));
+            this.nextUnitScores = ByteBuffer.allocateDirect(length(size, UNIT_SCORES));
+        }
 
-        int generation = 0; // Track the number of generations
-        while (true) {
-            // Evaluate the fitness of each chromosome in the population
-            mainInstance.evaluatePopulation();
+        @Override
+        public int getFitness(int slot) {
+            return fitness.getInt(slot * Integer.BYTES);
+        }
 
-            List<Chromosome> newPopulation = new ArrayList<>();
-            for (int i = 0; i < mainInstance.population.size() / 2; i++) {
-                // Select parents using tournament selection
-                List<Chromosome> parents = mainInstance.tournamentSelection(TOURNAMENTSIZE);
-                // Perform crossover to create two children from the selected parents
-                Chromosome child1 = mainInstance.crossoverBySubgrids(parents.get(0), parents.get(1));
-                Chromosome child2 = mainInstance.crossoverBySubgrids(parents.get(1), parents.get(0));
+        @Override
+        public void setFitness(int slot, int value) {
+            fitness.putInt(slot * Integer.BYTES, value);
+        }
 
-                // Apply mutation to both children
-                mainInstance.mutateChromosome(child1, MUTATIONRATE);
-                mainInstance.mutateChromosome(child2, MUTATIONRATE);
+        @Override
+        public int getNextFitness(int slot) {
+            return nextFitness.getInt(slot * Integer.BYTES);
+        }
 
-                // Add both children to the new population
-                newPopulation.add(child1);
-                newPopulation.add(child2);
-            }
+        @Override
+        public void setNextFitness(int slot, int value) {
+            nextFitness.putInt(slot * Integer.BYTES, value);
+        }
 
-            // Replace the old population with the new population
-            mainInstance.population = newPopulation;
+        @Override
+        public int getUnitScore(int slot, int index) {
+            return unitScores.get(slot * UNIT_SCORES + index);
+        }
 
-            // Get the best chromosome from the current population
-            bestSolution = mainInstance.getBestChromosome();
-            generation++;
+        @Override
+        public void setUnitScore(int slot, int index, int value) {
+            unitScores.put(slot * UNIT_SCORES + index, (byte) value);
+        }
 
-            // If the best solution found has a fitness of 0, print it and end the program
-            if (bestSolution.getFitness() == 0) {
-                bestSolution.printChromosome(false);
-                return;
+        @Override
+        public int getNextUnitScore(int slot, int index) {
+            return nextUnitScores.get(slot * UNIT_SCORES + index);
+        }
+
+        @Override
+        public void setNextUnitScore(int slot, int index, int value) {
+            nextUnitScores.put(slot * UNIT_SCORES + index, (byte) value);
+        }
+
+        @Override
+        public int getCell(int slot, int cell) {
+            return genomes.get(slot * CELLS + cell);
+        }
+
+        @Override
+        public int getNextCell(int slot, int cell) {
+            return nextGenomes.get(slot * CELLS + cell);
+        }
+
+        @Override
+        public void writeGenome(int slot, byte[] sudoku) {
+            genomes.put(slot * CELLS, sudoku, 0, CELLS);
+        }
+
+        @Override
+        public void readGenome(int slot, byte[] sudoku) {
+            genomes.get(slot * CELLS, sudoku, 0, CELLS);
+        }
+
+        @Override
+        public void copyGenomeToNext(int parent, int child) {
+            nextGenomes.put(child * CELLS, genomes, parent * CELLS, CELLS);
+        }
+
+        @Override
+        public void copyBoxToNext(int parent, int child, int box) {
+            int start = boxStart(box);
+            int from = parent * CELLS + start;
+            int to = child * CELLS + start;
+            for (int rowOffset = 0; rowOffset < 27; rowOffset += 9) {
+                nextGenomes.put(to + rowOffset, genomes, from + rowOffset, 3);
             }
         }
-    }
 
-    // Generate initial population of chromosomes
-    public void generateInitialChromosomes(int numberOfChromosomes, int[][] baseSudoku, List<int[]> mutablePositions) {
-        for (int i = 0; i < numberOfChromosomes; i++) {
-            // Create a copy of the base Sudoku
-            int[][] sudoku = copyMatrix(baseSudoku);
-            // Randomly fill mutable positions while ensuring no duplicates in subgrids
-            for (int gridRow = 0; gridRow < 3; gridRow++) {
-                for (int gridCol = 0; gridCol < 3; gridCol++) {
-                    boolean[] present = new boolean[10];
-                    List<int[]> subgridPositions = new ArrayList<>();
-                    // Collect all positions in the current 3x3 subgrid
-                    for (int row = gridRow * 3; row < gridRow * 3 + 3; row++) {
-                        for (int col = gridCol * 3; col < gridCol * 3 + 3; col++) {
-                            int value = sudoku[row][col];
-                            if (value != 0) {
-                                present[value] = true;
-                            } else {
-                                subgridPositions.add(new int[]{row, col});
-                            }
-                        }
-                    }
-                    // Randomly fill the subgrid ensuring no duplicates
-                    for (int[] pos : subgridPositions) {
-                        int newValue;
-                        do {
-                            newValue = random.nextInt(9) + 1;
-                        } while (present[newValue]);
-                        sudoku[pos[0]][pos[1]] = newValue;
-                        present[newValue] = true;
-                    }
+        @Override
+        public void swapBoxesInNext(int child, int box1, int box2) {
+            int start1 = child * CELLS + boxStart(box1);
+            int start2 = child * CELLS + boxStart(box2);
+            for (int rowOffset = 0; rowOffset < 27; rowOffset += 9) {
+                for (int colOffset = 0; colOffset < 3; colOffset++) {
+                    byte temp = nextGenomes.get(start1 + rowOffset + colOffset);
+                    nextGenomes.put(start1 + rowOffset + colOffset, nextGenomes.get(start2 + rowOffset + colOffset));
+                    nextGenomes.put(start2 + rowOffset + colOffset, temp);
                 }
             }
-            // Create a new chromosome with the generated Sudoku and mutable positions
-            Chromosome chromosome = new Chromosome(sudoku, new ArrayList<>(mutablePositions));
-            chromosome.evaluateFitness(); // Evaluate its fitness
-            population.add(chromosome); // Add to the population
         }
-    }
 
+        @Override
+        public void swapCellsInNext(int child, int cellA, int cellB) {
+            int offset = child * CELLS;
+            byte temp = nextGenomes.get(offset + cellA);
+            nextGenomes.put(offset + cellA, nextGenomes.get(offset + cellB));
+            nextGenomes.put(offset + cellB, temp);
+        }
 
-    // Create a deep copy of a matrix
-    private int[][] copyMatrix(int[][] original) {
-        int[][] copy = new int[original.length][original[0].length];
-        for (int i = 0; i < original.length; i++) {
-            System.arraycopy(original[i], 0, copy[i], 0, original[i].length);
+        @Override
+        public int scoreBandsAndStacks(int slot, int bands, int stacks) {
+            return score(genomes, unitScores, slot, bands, stacks);
         }
-        return copy;
-    }
 
+        @Override
+        public int scoreNextBandsAndStacks(int slot, int bands, int stacks) {
+            return score(nextGenomes, nextUnitScores, slot, bands, stacks);
+        }
 
-    public List<Chromosome> tournamentSelection(int tournamentSize) {
-        List<Chromosome> selectedParents = new ArrayList<>();
-        for (int i = 0; i < 2; i++) {
-            List<Chromosome> tournament = new ArrayList<>();
-            // Randomly select chromosomes for the tournament
-            for (int j = 0; j < tournamentSize; j++) {
-                Chromosome randomChromosome = population.get(random.nextInt(population.size()));
-                tournament.add(randomChromosome);
-            }
-            // Determine the best chromosome in the tournament based on fitness
-            Chromosome best = tournament.get(0);
-            for (Chromosome chromosome : tournament) {
-                if (chromosome.getFitness() < best.getFitness()) {
-                    best = chromosome;
+        private static int score(ByteBuffer genomes, ByteBuffer scores, int slot, int bands, int stacks) {
+            int offset = slot * CELLS;
+            int base = slot * UNIT_SCORES;
+            int fitness = 0;
+            for (int k = 0; k < 3; k++) {
+                if ((bands & (1 << k)) != 0) {
+                    scores.put(base + k, (byte) FitnessKernel.bandViolations(genomes, offset, k));
                 }
+                if ((stacks & (1 << k)) != 0) {
+                    scores.put(base + 3 + k, (byte) FitnessKernel.stackViolations(genomes, offset, k));
+                }
+                fitness += scores.get(base + k) + scores.get(base + 3 + k);
             }
-            // Add the best chromosome to the list of selected parents
-            selectedParents.add(best);
+            return fitness;
+        }
+
+        @Override
+        protected void swapBuffers() {
+            ByteBuffer tempGenomes = genomes;
+            genomes = nextGenomes;
+            nextGenomes = tempGenomes;
+            ByteBuffer tempFitness = fitness;
+            fitness = nextFitness;
+            nextFitness = tempFitness;
+            ByteBuffer tempScores = unitScores;
+            unitScores = nextUnitScores;
+            nextUnitScores = tempScores;
         }
-        return selectedParents;
     }
     
-    public Chromosome crossoverBySubgrids(Chromosome parent1, Chromosome parent2) {
-        int[][] childSudoku = new int[9][9];
-    
-        // Copy the entire Sudoku grid from parent1 to the child
-        for (int row = 0; row < 9; row++) {
-            System.arraycopy(parent1.getSudoku()[row], 0, childSudoku[row], 0, 9);
+    // Population whose chromosomes are nine block ids, one per 3x3 box, into a shared BoxBlockTable.
+    // Boxes are the unit of inheritance of both crossover and mutation, so copying a box or a whole
+    // chromosome copies ids, and swapping two boxes swaps two ids; only writing a genome (which happens
+    // when a box gets new contents) interns new blocks. As the population converges, more and more
+    // individuals share the same blocks, and a slot costs 36 bytes instead of 81.
+    public static class BlockPopulationStore extends PopulationStore {
+        private final BoxBlockTable table = new BoxBlockTable();
+        // Block id of box b of slot i at [i * 9 + b]
+        private int[] boxes;
+        private int[] nextBoxes;
+        private int[] fitness;
+        private int[] nextFitness;
+        private byte[] unitScores;
+        private byte[] nextUnitScores;
+
+        public BlockPopulationStore(int size) {
+            super(size);
+            this.boxes = new int[length(size, 9)];
+            this.nextBoxes = new int[length(size, 9)];
+            this.fitness = new int[size];
+            this.nextFitness = new int[size];
+            this.unitScores = new byte[length(size, UNIT_SCORES)];
+            this.nextUnitScores = new byte[length(size, UNIT_SCORES)];
         }
-    
-        // Determine the number of subgrids to swap from parent2 to child (1-5)
-        int numSubgridsToSwap = random.nextInt(5) + 1;
-        List<Integer> selectedSubgrids = new ArrayList<>();
-        while (selectedSubgrids.size() < numSubgridsToSwap) {
-            int subgridIndex = random.nextInt(9);
-            if (!selectedSubgrids.contains(subgridIndex)) {
-                selectedSubgrids.add(subgridIndex);
+
+        public BoxBlockTable table() {
+            return table;
+        }
+
+        @Override
+        public int getFitness(int slot) {
+            return fitness[slot];
+        }
+
+        @Override
+        public void setFitness(int slot, int value) {
+            fitness[slot] = value;
+        }
+
+        @Override
+        public int getNextFitness(int slot) {
+            return nextFitness[slot];
+        }
+
+        @Override
+        public void setNextFitness(int slot, int value) {
+            nextFitness[slot] = value;
+        }
+
+        @Override
+        public int getUnitScore(int slot, int index) {
+            return unitScores[slot * UNIT_SCORES + index];
+        }
+
+        @Override
+        public void setUnitScore(int slot, int index, int value) {
+            unitScores[slot * UNIT_SCORES + index] = (byte) value;
+        }
+
+        @Override
+        public int getNextUnitScore(int slot, int index) {
+            return nextUnitScores[slot * UNIT_SCORES + index];
+        }
+
+        @Override
+        public void setNextUnitScore(int slot, int index, int value) {
+            nextUnitScores[slot * UNIT_SCORES + index] = (byte) value;
+        }
+
+        @Override
+        public int getCell(int slot, int cell) {
+            return table.cell(boxes[slot * 9 + PuzzleModel.BOX[cell]], PuzzleModel.BOX_INDEX[cell]);
+        }
+
+        @Override
+        public int getNextCell(int slot, int cell) {
+            return table.cell(nextBoxes[slot * 9 + PuzzleModel.BOX[cell]], PuzzleModel.BOX_INDEX[cell]);
+        }
+
+        @Override
+        public void writeGenome(int slot, byte[] sudoku) {
+            for (int box = 0; box < 9; box++) {
+                boxes[slot * 9 + box] = table.intern(sudoku, boxStart(box));
             }
         }
-    
-        // Swap the selected subgrids from parent2 into the child
-        for (int subgrid : selectedSubgrids) {
-            int rowStart = (subgrid / 3) * 3;
-            int colStart = (subgrid % 3) * 3;
-            for (int row = rowStart; row < rowStart + 3; row++) {
-                for (int col = colStart; col < colStart + 3; col++) {
-                    childSudoku[row][col] = parent2.getSudoku()[row][col];
+
+        @Override
+        public void readGenome(int slot, byte[] sudoku) {
+            for (int box = 0; box < 9; box++) {
+                table.copyOut(boxes[slot * 9 + box], sudoku, boxStart(box));
+            }
+        }
+
+        @Override
+        public void copyGenomeToNext(int parent, int child) {
+            System.arraycopy(boxes, parent * 9, nextBoxes, child * 9, 9);
+        }
+
+        @Override
+        public void copyBoxToNext(int parent, int child, int box) {
+            nextBoxes[child * 9 + box] = boxes[parent * 9 + box];
+        }
+
+        @Override
+        public void swapBoxesInNext(int child, int box1, int box2) {
+            int temp = nextBoxes[child * 9 + box1];
+            nextBoxes[child * 9 + box1] = nextBoxes[child * 9 + box2];
+            nextBoxes[child * 9 + box2] = temp;
+        }
+
+        // Blocks are immutable, so the changed box is interned as a new (or existing) block, keyed straight
+        // from the old block's cells
+        @Override
+        public void swapCellsInNext(int child, int cellA, int cellB) {
+            int box = PuzzleModel.BOX[cellA];
+            nextBoxes[child * 9 + box] = table.internSwapped(nextBoxes[child * 9 + box],
+                    PuzzleModel.BOX_INDEX[cellA], PuzzleModel.BOX_INDEX[cellB]);
+        }
+
+        @Override
+        public int scoreBandsAndStacks(int slot, int bands, int stacks) {
+            return score(boxes, unitScores, slot, bands, stacks);
+        }
+
+        @Override
+        public int scoreNextBandsAndStacks(int slot, int bands, int stacks) {
+            return score(nextBoxes, nextUnitScores, slot, bands, stacks);
+        }
+
+        private int score(int[] boxes, byte[] scores, int slot, int bands, int stacks) {
+            int first = slot * 9;
+            int base = slot * UNIT_SCORES;
+            int fitness = 0;
+            for (int k = 0; k < 3; k++) {
+                if ((bands & (1 << k)) != 0) {
+                    scores[base + k] = (byte) table.bandViolations(
+                            boxes[first + 3 * k], boxes[first + 3 * k + 1], boxes[first + 3 * k + 2]);
+                }
+                if ((stacks & (1 << k)) != 0) {
+                    scores[base + 3 + k] = (byte) table.stackViolations(
+                            boxes[first + k], boxes[first + 3 + k], boxes[first + 6 + k]);
                 }
+                fitness += scores[base + k] + scores[base + 3 + k];
             }
+            return fitness;
+        }
+
+        @Override
+        protected void swapBuffers() {
+            int[] tempBoxes = boxes;
+            boxes = nextBoxes;
+            nextBoxes = tempBoxes;
+            int[] tempFitness = fitness;
+            fitness = nextFitness;
+            nextFitness = tempFitness;
+            byte[] tempScores = unitScores;
+            unitScores = nextUnitScores;
+            nextUnitScores = tempScores;
         }
-    
-        // Create a new chromosome with the resulting child Sudoku and evaluate its fitness
-        Chromosome child = new Chromosome(childSudoku, parent1.getMutablePositions());
-        child.evaluateFitness();
-        return child;
     }
-    
-    public void printPopulation(boolean printMutPos) {
-        System.out.println("Generated Population:");
-        int count = 1;
-        // Print each chromosome's Sudoku and fitness value
-        for (Chromosome chromosome : population) {
-            System.out.println("Chromosome " + count + ":");
-            chromosome.printChromosome(printMutPos);
-            System.out.println("Fitness: " + chromosome.getFitness());
-            System.out.println();
+
+    // Interned, immutable 3x3 boxes. A box is identified by its 9 cells packed 4 bits each into a long key;
+    // equal boxes get the same id, and the cells of block `id` live at [id * 9, id * 9 + 9) in row-major order.
+    // Blocks are never freed. Initialization, cell swaps and immigrants create them, so the table holds every
+    // distinct box a run has produced, at most the permutations of each box's missing digits.
+    // Lookups are lock-free: an entry packs the key and the id into one long published with a release store
+    // after the block's cells, so a reader that finds an entry also sees its cells. Only a miss takes the
+    // lock, finds the entry again or inserts it.
+    public static final class BoxBlockTable {
+        private static final VarHandle ENTRY = MethodHandles.arrayElementVarHandle(long[].class);
+        private static final int ID_BITS = 27; // Keys take 37 bits (a leading 1 and 9 cells of 4 bits)
+        // Replaced (never modified in place for existing ids) when it grows, so readers holding an id
+        // obtained after the growth always see a large enough array
+        private volatile byte[] cells = new byte[9 * 1024];
+        // Open-addressing table of key << ID_BITS | id, 0 marking an empty slot; replaced when it grows
+        private volatile long[] entries = new long[2048];
+        private int count;
+
+        public int size() {
+            return count;
+        }
+
+        // Id of the box whose top-left cell is sudoku[start], creating the block if it is new
+        public int intern(byte[] sudoku, int start) {
+            long key = 1;
+            for (int rowOffset = 0; rowOffset < 27; rowOffset += 9) {
+                for (int col = 0; col < 3; col++) {
+                    key = (key << 4) | sudoku[start + rowOffset + col];
+                }
+            }
+            return intern(key);
+        }
+
+        // Id of block `id` with its cells `indexA` and `indexB` exchanged, creating the block if it is new
+        public int internSwapped(int id, int indexA, int indexB) {
+            byte[] blockCells = cells;
+            long key = 1;
+            for (int index = 0; index < 9; index++) {
+                int source = index == indexA ? indexB : index == indexB ? indexA : index;
+                key = (key << 4) | blockCells[id * 9 + source];
+            }
+            return intern(key);
+        }
+
+        private int intern(long key) {
+            int id = lookup(entries, key);
+            return id >= 0 ? id : insert(key);
+        }
+
+        private static int slot(long key, int mask) {
+            return (int) (key * 0x9E3779B97F4A7C15L >>> 40) & mask;
+        }
+
+        // Id stored for `key`, -1 if the table has no entry for it
+        private static int lookup(long[] table, long key) {
+            int mask = table.length - 1;
+            for (int index = slot(key, mask); ; index = (index + 1) & mask) {
+                long entry = (long) ENTRY.getAcquire(table, index);
+                if (entry == 0) {
+                    return -1;
+                }
+                if (entry >>> ID_BITS == key) {
+                    return (int) (entry & ((1 << ID_BITS) - 1));
+                }
+            }
+        }
+
+        private synchronized int insert(long key) {
+            long[] table = entries;
+            int found = lookup(table, key); // Another thread may have inserted it since the lock-free miss
+            if (found >= 0) {
+                return found;
+            }
+            int id = count;
+            if (id >= 1 << ID_BITS) {
+                throw new IllegalStateException("Too many distinct boxes");
+            }
+            byte[] blockCells = cells;
+            if ((id + 1) * 9 > blockCells.length) {
+                blockCells = Arrays.copyOf(blockCells, blockCells.length * 2);
+            }
+            for (int cell = 0; cell < 9; cell++) {
+                blockCells[id * 9 + cell] = (byte) (key >>> (4 * (8 - cell)) & 15);
+            }
+            cells = blockCells;
+            int mask = table.length - 1;
+            int index = slot(key, mask);
+            while (table[index] != 0) {
+                index = (index + 1) & mask;
+            }
+            ENTRY.setRelease(table, index, key << ID_BITS | id);
             count++;
+            if (count * 2 > table.length) {
+                rehash(table);
+            }
+            return id;
         }
-    }
-    
-    public void mutateChromosome(Chromosome chromosome, double mutationRate) {
-        int[][] sudoku = chromosome.getSudoku();
-    
-        // With a probability defined by mutationRate, perform a mutation by swapping subgrids
-        if (random.nextDouble() < mutationRate) {
-            // Randomly select two different subgrids to swap
-            int subgrid1, subgrid2;
-            do {
-                subgrid1 = random.nextInt(9);
-                subgrid2 = random.nextInt(9);
-            } while (subgrid1 == subgrid2);
-    
-            // Get the starting coordinates for both subgrids
-            int rowStart1 = (subgrid1 / 3) * 3;
-            int colStart1 = (subgrid1 % 3) * 3;
-            int rowStart2 = (subgrid2 / 3) * 3;
-            int colStart2 = (subgrid2 % 3) * 3;
-    
-            // Swap the values in the two selected subgrids
-            for (int rowOffset = 0; rowOffset < 3; rowOffset++) {
-                for (int colOffset = 0; colOffset < 3; colOffset++) {
-                    int temp = sudoku[rowStart1 + rowOffset][colStart1 + colOffset];
-                    sudoku[rowStart1 + rowOffset][colStart1 + colOffset] = sudoku[rowStart2 + rowOffset][colStart2 + colOffset];
-                    sudoku[rowStart2 + rowOffset][colStart2 + colOffset] = temp;
+
+        // Copy the entries into a table twice the size, published once it is complete
+        private void rehash(long[] table) {
+            long[] grown = new long[table.length * 2];
+            int mask = grown.length - 1;
+            for (long entry : table) {
+                if (entry != 0) {
+                    int index = slot(entry >>> ID_BITS, mask);
+                    while (grown[index] != 0) {
+                        index = (index + 1) & mask;
+                    }
+                    grown[index] = entry;
                 }
             }
+            entries = grown;
         }
-    
-        // Update the chromosome's Sudoku and recalculate its fitness
-        chromosome.setSudoku(sudoku);
-        chromosome.evaluateFitness();
-    }
-    
-    
-    public void evaluatePopulation() {
-        // Evaluate the fitness of each chromosome in the population
-        for (Chromosome chromosome : population) {
-            chromosome.evaluateFitness();
+
+        // Cell `index` (row-major inside the box) of block `id`
+        public int cell(int id, int index) {
+            return cells[id * 9 + index];
+        }
+
+        // Write the cells of block `id` into the box whose top-left cell is sudoku[start]
+        public void copyOut(int id, byte[] sudoku, int start) {
+            byte[] blockCells = cells;
+            int cell = id * 9;
+            for (int rowOffset = 0; rowOffset < 27; rowOffset += 9) {
+                for (int col = 0; col < 3; col++) {
+                    sudoku[start + rowOffset + col] = blockCells[cell++];
+                }
+            }
+        }
+
+        // Row violations of a band made of the blocks left, middle and right
+        public int bandViolations(int left, int middle, int right) {
+            byte[] c = cells;
+            int l = left * 9, m = middle * 9, r = right * 9;
+            int violations = 0;
+            for (int row = 0; row < 9; row += 3) {
+                violations += FitnessKernel.duplicates(c[l + row], c[l + row + 1], c[l + row + 2],
+                        c[m + row], c[m + row + 1], c[m + row + 2], c[r + row], c[r + row + 1], c[r + row + 2]);
+            }
+            return violations;
+        }
+
+        // Column violations of a stack made of the blocks top, middle and bottom
+        public int stackViolations(int top, int middle, int bottom) {
+            byte[] c = cells;
+            int t = top * 9, m = middle * 9, b = bottom * 9;
+            int violations = 0;
+            for (int col = 0; col < 3; col++) {
+                violations += FitnessKernel.duplicates(c[t + col], c[t + col + 3], c[t + col + 6],
+                        c[m + col], c[m + col + 3], c[m + col + 6], c[b + col], c[b + col + 3], c[b + col + 6]);
+            }
+            return violations;
         }
     }
-    
-    public Chromosome getBestChromosome() {
-        // Find and return the chromosome with the best (lowest) fitness in the population
-        Chromosome best = population.get(0);
-        for (Chromosome chromosome : population) {
-            if (chromosome.getFitness() < best.getFitness()) {
-                best = chromosome;
+
+    // A puzzle compiled once into immutable lookup tables, referenced by every chromosome. The static
+    // tables describe the 9x9 geometry shared by all puzzles; the instance holds the givens, the fixed-cell
+    // mask and the mutable cells of each box, so operators never recompute coordinates or walk lists.
+    public static final class PuzzleModel {
+        // Row, column and box of every cell
+        public static final int[] ROW = new int[CELLS];
+        public static final int[] COLUMN = new int[CELLS];
+        public static final int[] BOX = new int[CELLS];
+        // Row-major position of every cell inside its box (0..8)
+        public static final int[] BOX_INDEX = new int[CELLS];
+        // Band (box row) and stack (box column) of every box, and the index of its top-left cell
+        public static final int[] BAND = new int[9];
+        public static final int[] STACK = new int[9];
+        public static final int[] BOX_START = new int[9];
+        // The 9 cells of every box in row-major order
+        public static final int[][] BOX_CELLS = new int[9][9];
+        // The 20 cells sharing a row, column or box with every cell
+        public static final int[][] PEERS = new int[CELLS][20];
+
+        static {
+            for (int cell = 0; cell < CELLS; cell++) {
+                ROW[cell] = cell / 9;
+                COLUMN[cell] = cell % 9;
+                BOX[cell] = (cell / 27) * 3 + (cell % 9) / 3;
+                BOX_INDEX[cell] = (ROW[cell] % 3) * 3 + COLUMN[cell] % 3;
+            }
+            for (int box = 0; box < 9; box++) {
+                BAND[box] = box / 3;
+                STACK[box] = box % 3;
+                BOX_START[box] = BAND[box] * 27 + STACK[box] * 3;
+                for (int i = 0; i < 9; i++) {
+                    BOX_CELLS[box][i] = BOX_START[box] + (i / 3) * 9 + i % 3;
+                }
+            }
+            for (int cell = 0; cell < CELLS; cell++) {
+                int count = 0;
+                for (int other = 0; other < CELLS; other++) {
+                    if (other != cell && (ROW[other] == ROW[cell] || COLUMN[other] == COLUMN[cell]
+                            || BOX[other] == BOX[cell])) {
+                        PEERS[cell][count++] = other;
+                    }
+                }
             }
         }
-        return best;
+
+        private final byte[] givens;
+        // Bit (cell & 63) of word (cell >>> 6) is set for every given (fixed) cell
+        private final long[] fixedMask = new long[2];
+        private final int[] mutableCells;
+        private final int[][] mutableCellsByBox = new int[9][];
+        // Mask with bit d set for every digit d given in the box
+        private final int[] givenDigits = new int[9];
+        private final byte[][] missingDigits = new byte[9][];
+
+        private PuzzleModel(byte[] givens) {
+            this.givens = givens.clone();
+            int mutable = 0;
+            for (int cell = 0; cell < CELLS; cell++) {
+                if (givens[cell] != 0) {
+                    fixedMask[cell >>> 6] |= 1L << cell;
+                    givenDigits[BOX[cell]] |= 1 << givens[cell];
+                } else {
+                    mutable++;
+                }
+            }
+            mutableCells = new int[mutable];
+            int next = 0;
+            for (int cell = 0; cell < CELLS; cell++) {
+                if (!isFixed(cell)) {
+                    mutableCells[next++] = cell;
+                }
+            }
+            for (int box = 0; box < 9; box++) {
+                int count = 0;
+                for (int cell : BOX_CELLS[box]) {
+                    if (!isFixed(cell)) {
+                        count++;
+                    }
+                }
+                mutableCellsByBox[box] = new int[count];
+                count = 0;
+                for (int cell : BOX_CELLS[box]) {
+                    if (!isFixed(cell)) {
+                        mutableCellsByBox[box][count++] = cell;
+                    }
+                }
+                missingDigits[box] = new byte[9 - Integer.bitCount(givenDigits[box])];
+                count = 0;
+                for (int digit = 1; digit <= 9; digit++) {
+                    if ((givenDigits[box] & (1 << digit)) == 0) {
+                        missingDigits[box][count++] = (byte) digit;
+                    }
+                }
+            }
+        }
+
+        // Compile a puzzle given as 81 cells in row-major order, 0 marking an empty cell
+        public static PuzzleModel compile(byte[] givens) {
+            return new PuzzleModel(givens);
+        }
+
+        public boolean isFixed(int cell) {
+            return (fixedMask[cell >>> 6] & (1L << cell)) != 0;
+        }
+
+        public int given(int cell) {
+            return givens[cell];
+        }
+
+        public void copyGivens(byte[] sudoku) {
+            System.arraycopy(givens, 0, sudoku, 0, CELLS);
+        }
+
+        // Mask with bit d set for every digit d given in the box
+        public int givenDigits(int box) {
+            return givenDigits[box];
+        }
+
+        public int mutableCount() {
+            return mutableCells.length;
+        }
+
+        public int mutableCell(int index) {
+            return mutableCells[index];
+        }
+
+        public int mutableCount(int box) {
+            return mutableCellsByBox[box].length;
+        }
+
+        public int mutableCell(int box, int index) {
+            return mutableCellsByBox[box][index];
+        }
+
+        // Copy the digits not given in the box, in ascending order, into `digits`; returns how many there are
+        public int copyMissingDigits(int box, byte[] digits) {
+            System.arraycopy(missingDigits[box], 0, digits, 0, missingDigits[box].length);
+            return missingDigits[box].length;
+        }
     }
-    
+
     // Chromosome class representing an individual solution
-    public class Chromosome {
-        private int[][] sudoku; // Sudoku grid representing the chromosome
-        private List<int[]> mutablePositions; // Positions that can be changed (mutable)
+    public static class Chromosome {
+        private byte[] sudoku; // Sudoku grid packed row by row, cell (row, col) lives at row * 9 + col
+        private final PuzzleModel model; // Compiled puzzle, shared by all chromosomes
         private int fitness; // Fitness value representing the number of conflicts
+        private long hash; // Zobrist hash of the grid (see FitnessCache), kept up to date by set and applySwap
+        // How many times each digit occurs in each row and column, for the incremental swap methods below
+        private final ConflictCounts counts = new ConflictCounts();
     
-        // Constructor for initializing a Chromosome with a Sudoku grid and mutable positions
-        public Chromosome(int[][] sudoku, List<int[]> mutablePositions) {
+        // Constructor for initializing a Chromosome with a complete Sudoku grid and the puzzle it solves
+        public Chromosome(byte[] sudoku, PuzzleModel model) {
             this.sudoku = sudoku;
-            this.mutablePositions = mutablePositions;
+            this.model = model;
+            evaluateFitness();
         }
     
-        public int[][] getSudoku() {
+        public byte[] getGenome() {
             return sudoku;
         }
     
-        public void setSudoku(int[][] sudoku) {
+        public void setGenome(byte[] sudoku) {
             this.sudoku = sudoku;
+            evaluateFitness();
+        }
+    
+        // Value of the cell with the given packed index (0..80)
+        public int get(int cell) {
+            return sudoku[cell];
+        }
+    
+        public int get(int row, int col) {
+            return sudoku[row * 9 + col];
+        }
+    
+        // Overwrite one cell with a digit, keeping the digit counts and the fitness up to date
+        public void set(int cell, int value) {
+            hash ^= FitnessCache.key(cell, sudoku[cell]) ^ FitnessCache.key(cell, value);
+            fitness += counts.set(sudoku, cell, value);
+        }
+    
+        public void set(int row, int col, int value) {
+            set(row * 9 + col, value);
         }
     
-        public List<int[]> getMutablePositions() {
-            return mutablePositions;
+        public PuzzleModel getModel() {
+            return model;
         }
     
         public int getFitness() {
             return fitness;
         }
+
+        public long getHash() {
+            return hash;
+        }
     
-        // Evaluate the fitness of the Sudoku by counting the number of row, column, and subgrid violations
+        // Evaluate the fitness of the Sudoku by counting the number of row and column violations,
+        // rebuilding the digit counts used by the incremental swap methods below
         public void evaluateFitness() {
-            fitness = countRowViolations() + countColumnViolations();
+            fitness = counts.count(sudoku);
+            hash = FitnessCache.hash(sudoku, 0);
         }
     
-        private int countRowViolations() {
-            int violations = 0;
-            // Iterate through each row to count conflicts
-            for (int i = 0; i < 9; i++) {
-                boolean[] present = new boolean[10];
-                for (int j = 0; j < 9; j++) {
-                    int value = sudoku[i][j];
-                    if (value != 0) {
-                        if (present[value]) {
-                            violations++; // Increment violations if the value is already seen
-                        } else {
-                            present[value] = true; // Mark the value as seen
-                        }
-                    }
-                }
-            }
-            return violations;
-        }
-        private int countColumnViolations() {
-            int violations = 0;
-            // Loop through each column
-            for (int j = 0; j < 9; j++) {
-                boolean[] present = new boolean[10]; // Track numbers present in the column
-                for (int i = 0; i < 9; i++) {
-                    int value = sudoku[i][j];
-                    if (value != 0) {
-                        // If the number is already present, increment the violations count
-                        if (present[value]) {
-                            violations++;
-                        } else {
-                            // Mark the number as present
-                            present[value] = true;
-                        }
-                    }
-                }
-            }
-            return violations;
+        // Fitness change that swapping the values of two cells would cause, without changing the chromosome.
+        // Only the (at most two) rows and columns holding the cells are inspected.
+        public int swapDelta(int cellA, int cellB) {
+            return counts.delta(sudoku, cellA, cellB);
         }
-        
-        private int countSubgridViolations() {
-            int violations = 0;
-            // Loop through each 3x3 subgrid
-            for (int gridRow = 0; gridRow < 3; gridRow++) {
-                for (int gridCol = 0; gridCol < 3; gridCol++) {
-                    boolean[] present = new boolean[10]; // Track numbers present in the subgrid
-                    // Loop through cells in the 3x3 subgrid
-                    for (int row = gridRow * 3; row < gridRow * 3 + 3; row++) {
-                        for (int col = gridCol * 3; col < gridCol * 3 + 3; col++) {
-                            int value = sudoku[row][col];
-                            if (value != 0) {
-                                // If the number is already present, increment the violations count
-                                if (present[value]) {
-                                    violations++;
-                                } else {
-                                    // Mark the number as present
-                                    present[value] = true;
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-            return violations;
+    
+        // Swap the values of two cells and update the fitness incrementally; returns the fitness change
+        public int applySwap(int cellA, int cellB) {
+            int valueA = sudoku[cellA];
+            int valueB = sudoku[cellB];
+            int delta = counts.delta(sudoku, cellA, cellB);
+            counts.swap(sudoku, cellA, cellB);
+            hash ^= FitnessCache.key(cellA, valueA) ^ FitnessCache.key(cellA, valueB)
+                    ^ FitnessCache.key(cellB, valueB) ^ FitnessCache.key(cellB, valueA);
+            fitness += delta;
+            return delta;
         }
         
         public void printChromosome(boolean printMutPos) {
             // Print the Sudoku matrix
-            for (int[] row : sudoku) {
-                for (int j = 0; j < row.length; j++) {
-                    System.out.print(row[j]);
-                    if (j < row.length - 1) {
-                        System.out.print(" ");
-                    }
-                }
-                System.out.println();
+            StringBuilder out = new StringBuilder(CELLS * 2);
+            for (int cell = 0; cell < CELLS; cell++) {
+                out.append((char) ('0' + sudoku[cell]));
+                // Separate cells by spaces and rows by line breaks
+                out.append(PuzzleModel.COLUMN[cell] == 8 ? '\n' : ' ');
             }
+            System.out.print(out);
             // If requested, print mutable positions
             if (printMutPos) {
                 System.out.println("Mutable Positions:");
-                for (int i = 0; i < mutablePositions.size(); i++) {
-                    int[] pos = mutablePositions.get(i);
-                    System.out.print("(" + pos[0] + ", " + pos[1] + ")");
-                    if (i < mutablePositions.size() - 1) {
+                for (int i = 0; i < model.mutableCount(); i++) {
+                    int cell = model.mutableCell(i);
+                    System.out.print("(" + PuzzleModel.ROW[cell] + ", " + PuzzleModel.COLUMN[cell] + ")");
+                    if (i < model.mutableCount() - 1) {
                         System.out.print(" ");
                     }
                 }